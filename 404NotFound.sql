@@ -47,6 +47,19 @@ CREATE TABLE approval_doc(
  PRIMARY KEY (approval_doc_id)
 );
 
+-- 결재 문서 검색 (한글 2-gram FULLTEXT, ngram_token_size=2) - InnoDB 는 FULLTEXT 를 한 번에 하나씩만 추가 가능
+ALTER TABLE approval_doc ADD FULLTEXT INDEX ft_approval_title (approval_title) WITH PARSER ngram;
+ALTER TABLE approval_doc ADD FULLTEXT INDEX ft_approval_text (approval_title, approval_content) WITH PARSER ngram;
+
+-- 결재 문서번호 연도별 시퀀스 (AP-연도-0000001)
+--  - 서버마다 seq_next 를 블록 단위로 미리 예약해 메모리에서 발급 → 재시작/다중 서버에서도 중복 없음
+--  - 기존 AP-연도-밀리초 6자리 번호와는 자릿수(7자리 이상)가 달라 겹치지 않음
+CREATE TABLE approval_doc_seq(
+ seq_year INT NOT NULL,
+ seq_next BIGINT NOT NULL,
+ PRIMARY KEY (seq_year)
+);
+
 -- 전자 결재 테이블
 CREATE TABLE approval_line (
  approval_line_idx     INT NOT NULL AUTO_INCREMENT,
@@ -58,6 +71,9 @@ CREATE TABLE approval_line (
  PRIMARY KEY (approval_line_idx)
 );
 
+-- 결재 대기함(투두) keyset 조회용
+ALTER TABLE approval_line ADD KEY idx_line_todo (approval_id, approval_line_status, approval_line_idx);
+
 -- 전자결재 카테고리 상세 테이블
 CREATE TABLE timeoff_request(
  timeoff_id VARCHAR(255) NOT NULL,
@@ -100,6 +116,41 @@ CREATE TABLE chat_message(
  KEY idx_msg_sender (message_sender_id)
 );
 
+-- 채팅 히스토리 keyset 페이징용 (방별 message_id 역순 탐색)
+ALTER TABLE chat_message ADD KEY idx_msg_room_id (message_room_id, message_id);
+
+-- 채팅 읽음 커서 / 안 읽음 카운터 (서버 메모리에서 누적 후 주기적으로 반영)
+ALTER TABLE chat_users
+ ADD COLUMN chat_last_read_id INT NOT NULL DEFAULT 0,
+ ADD COLUMN chat_unread_count INT NOT NULL DEFAULT 0;
+
+-- 큰 채팅 본문: chat_message 에는 미리보기 + 원문 크기, 원문은 gzip 으로 분리 보관
+ALTER TABLE chat_message ADD COLUMN message_full_size INT NULL;
+
+CREATE TABLE chat_message_blob(
+ blob_message_id INT NOT NULL,
+ blob_room_id INT NOT NULL,
+ blob_size INT NOT NULL,
+ blob_data MEDIUMBLOB NOT NULL,
+ PRIMARY KEY (blob_message_id),
+ KEY idx_blob_room (blob_room_id)
+);
+
+-- 오래된 채팅 메시지 아카이브 (방별 message_id 구간을 gzip 으로 묶어 보관)
+CREATE TABLE chat_message_segment(
+ segment_id BIGINT NOT NULL AUTO_INCREMENT,
+ segment_room_id INT NOT NULL,
+ segment_first_id INT NOT NULL,
+ segment_last_id INT NOT NULL,
+ segment_count INT NOT NULL,
+ segment_first_time DATETIME NOT NULL,
+ segment_last_time DATETIME NOT NULL,
+ segment_data MEDIUMBLOB NOT NULL,
+ segment_created DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+ PRIMARY KEY (segment_id),
+ UNIQUE KEY uq_seg_room_last (segment_room_id, segment_last_id)
+);
+
 
 ----------------------------------------------------- 혜원
 -- 문서 보관소 테이블
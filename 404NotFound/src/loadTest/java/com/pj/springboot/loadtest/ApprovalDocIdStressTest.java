@@ -0,0 +1,192 @@
+package com.pj.springboot.loadtest;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * 결재 문서번호 동시 발급 스트레스 테스트.
+ *
+ * 1) lt.parallelism 개 스레드가 동시에 결재 문서를 lt.docs 건 생성 (POST /api/approvals, JSON)
+ *    → lt.baseUrls 에 여러 서버를 쉼표로 주면 요청을 번갈아 보내 다중 서버 발급도 확인
+ * 2) 응답 문서번호의 중복 / 형식(AP-연도-7자리 이상) / 실패 건수 검사
+ * 3) 서버 /api/approvals/metrics 의 docId 지표와 함께 JSON 저장
+ * 4) 테스트 문서(제목 lt:docid:)와 결재선 삭제
+ *
+ * 중복이나 실패가 있으면 exit 1.
+ */
+public final class ApprovalDocIdStressTest {
+
+    private static final String MARK = "lt:docid:";
+    private static final Pattern DOC_ID = Pattern.compile("AP-\\d{4}-\\d{7,}");
+
+    private final List<String> baseUrls;
+    private final String jdbcUrl;
+    private final String dbUser;
+    private final String dbPassword;
+    private final int author;
+    private final int docs;
+    private final int parallelism;
+    private final String outputDir;
+
+    private final ObjectMapper json = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private final HttpClient http = HttpClient.newBuilder().build();
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final ConcurrentLinkedQueue<String> ids = new ConcurrentLinkedQueue<>();
+    private final LongAdder errors = new LongAdder();
+
+    private ApprovalDocIdStressTest() {
+        this.baseUrls = List.of(LoadTestConfig.str("lt.baseUrls", LoadTestConfig.str("lt.baseUrl", "http://localhost:8081")).split("\\s*,\\s*"));
+        this.jdbcUrl = LoadTestConfig.str("lt.jdbcUrl", "jdbc:mysql://localhost:3306/404notfound?serverTimezone=Asia/Seoul&characterEncoding=UTF-8&useSSL=false&allowPublicKeyRetrieval=true");
+        this.dbUser = LoadTestConfig.str("lt.dbUser", "404notfound");
+        this.dbPassword = LoadTestConfig.str("lt.dbPassword", "1234");
+        this.author = Integer.parseInt(LoadTestConfig.str("lt.userIdBase", "90000000"));
+        this.docs = Integer.parseInt(LoadTestConfig.str("lt.docs", "5000"));
+        this.parallelism = Integer.parseInt(LoadTestConfig.str("lt.parallelism", "64"));
+        this.outputDir = LoadTestConfig.str("lt.outputDir", "build/loadtest");
+    }
+
+    public static void main(String[] args) throws Exception {
+        int exit = new ApprovalDocIdStressTest().run();
+        System.exit(exit);
+    }
+
+    private int run() throws Exception {
+        log("servers " + baseUrls + ", docs " + docs + ", parallelism " + parallelism);
+
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        CountDownLatch done = new CountDownLatch(docs);
+        long t0 = System.nanoTime();
+        for (int i = 0; i < docs; i++) {
+            int n = i;
+            pool.execute(() -> {
+                try {
+                    create(n);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        double seconds = (System.nanoTime() - t0) / 1e9;
+        pool.shutdown();
+
+        List<String> all = new ArrayList<>(ids);
+        Set<String> unique = new HashSet<>();
+        List<String> duplicates = new ArrayList<>();
+        List<String> malformed = new ArrayList<>();
+        for (String id : all) {
+            if (!unique.add(id)) duplicates.add(id);
+            if (!DOC_ID.matcher(id).matches()) malformed.add(id);
+        }
+
+        Map<String, Object> counts = new LinkedHashMap<>();
+        counts.put("requested", docs);
+        counts.put("created", all.size());
+        counts.put("unique", unique.size());
+        counts.put("errors", errors.sum());
+        counts.put("duplicates", duplicates.size());
+        counts.put("malformed", malformed.size());
+
+        Map<String, Object> server = new LinkedHashMap<>();
+        for (String url : baseUrls) server.put(url, serverMetrics(url).path("docId"));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("startedAt", LocalDateTime.now().toString());
+        result.put("servers", baseUrls);
+        result.put("parallelism", parallelism);
+        result.put("seconds", seconds);
+        result.put("createdPerSec", all.size() / seconds);
+        result.put("latencyMs", latency.summary());
+        result.put("counts", counts);
+        result.put("duplicateSamples", duplicates.stream().limit(20).toList());
+        result.put("malformedSamples", malformed.stream().limit(20).toList());
+        result.put("server", server);
+
+        File out = LoadTestOutput.write(outputDir, "approval-docid", result);
+        log("result " + out.getAbsolutePath());
+        log("counts " + counts + ", latency " + latency.summary());
+
+        cleanup();
+
+        boolean ok = duplicates.isEmpty() && malformed.isEmpty() && errors.sum() == 0;
+        log(ok ? "OK" : "FAILED");
+        return ok ? 0 : 1;
+    }
+
+    private void create(int n) {
+        try {
+            String body = json.writeValueAsString(Map.of(
+                    "title", MARK + n,
+                    "content", "문서번호 발급 스트레스 테스트",
+                    "category", "ETC"));
+            String url = baseUrls.get(n % baseUrls.size());
+            long t0 = System.nanoTime();
+            HttpResponse<String> res = http.send(HttpRequest.newBuilder(URI.create(url + "/api/approvals"))
+                    .header("Content-Type", "application/json")
+                    .header("X-Employee-Id", String.valueOf(author))
+                    .POST(HttpRequest.BodyPublishers.ofString(body)).build(), HttpResponse.BodyHandlers.ofString());
+            latency.recordNanos(System.nanoTime() - t0);
+            if (res.statusCode() != 200) {
+                errors.increment();
+                return;
+            }
+            ids.add(res.body().trim());
+        } catch (Exception e) {
+            errors.increment();
+        }
+    }
+
+    private JsonNode serverMetrics(String url) {
+        try {
+            HttpResponse<String> res = http.send(HttpRequest.newBuilder(URI.create(url + "/api/approvals/metrics")).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            return json.readTree(res.body());
+        } catch (Exception e) {
+            return json.createObjectNode().put("error", String.valueOf(e.getMessage()));
+        }
+    }
+
+    /** 테스트 문서 정리 (결재선 먼저) */
+    private void cleanup() throws Exception {
+        try (Connection con = DriverManager.getConnection(jdbcUrl, dbUser, dbPassword);
+             PreparedStatement lines = con.prepareStatement("""
+                     delete l from approval_line l
+                       join approval_doc d on d.approval_doc_id = l.approval_doc_id
+                      where d.approval_title like ?
+                     """);
+             PreparedStatement docsStmt = con.prepareStatement("delete from approval_doc where approval_title like ?")) {
+            lines.setString(1, MARK + "%");
+            lines.executeUpdate();
+            docsStmt.setString(1, MARK + "%");
+            log("cleaned up " + docsStmt.executeUpdate() + " docs");
+        }
+    }
+
+    private static void log(String s) {
+        System.out.println("[approval-docid] " + s);
+    }
+}
@@ -0,0 +1,183 @@
+package com.pj.springboot.loadtest;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 결재 목록 응답 크기 / 지연 비교: 미리보기 프로젝션(GET /api/approvals) vs 본문 전체(?full=true).
+ *
+ * 1) 긴 본문(lt.contentChars 글자)의 결재 문서를 lt.docs 건 생성 (제목 lt:list:)
+ * 2) 페이지 크기(lt.pageSizes)마다 두 방식을 번갈아 lt.requests 번씩 조회
+ *    → 응답 바이트 / 지연(ms) 히스토그램, 줄어든 바이트 비율
+ * 3) 서버 /api/approvals/metrics 의 목록 지표와 함께 JSON 저장
+ * 4) 테스트 문서와 결재선 삭제
+ */
+public final class ApprovalListBench {
+
+    private static final String MARK = "lt:list:";
+
+    private final String baseUrl = LoadTestConfig.str("lt.baseUrl", "http://localhost:8081");
+    private final String jdbcUrl = LoadTestConfig.str("lt.jdbcUrl", "jdbc:mysql://localhost:3306/404notfound?serverTimezone=Asia/Seoul&characterEncoding=UTF-8&useSSL=false&allowPublicKeyRetrieval=true");
+    private final String dbUser = LoadTestConfig.str("lt.dbUser", "404notfound");
+    private final String dbPassword = LoadTestConfig.str("lt.dbPassword", "1234");
+    private final int author = Integer.parseInt(LoadTestConfig.str("lt.userIdBase", "90000000"));
+    private final int docs = Integer.parseInt(LoadTestConfig.str("lt.docs", "200"));
+    private final int contentChars = Math.min(4000, Integer.parseInt(LoadTestConfig.str("lt.contentChars", "3000")));
+    private final List<Integer> pageSizes = LoadTestConfig.ints("lt.pageSizes", "10,50,100");
+    private final int requests = Integer.parseInt(LoadTestConfig.str("lt.requests", "300"));
+    private final int warmupRequests = Integer.parseInt(LoadTestConfig.str("lt.warmupRequests", "50"));
+    private final String outputDir = LoadTestConfig.str("lt.outputDir", "build/loadtest");
+
+    private final ObjectMapper json = new ObjectMapper();
+    private final HttpClient http = HttpClient.newBuilder().build();
+
+    public static void main(String[] args) throws Exception {
+        new ApprovalListBench().run();
+        System.exit(0);
+    }
+
+    private void run() throws Exception {
+        log("server " + baseUrl + ", docs " + docs + " x " + contentChars + " chars, page sizes " + pageSizes);
+        try {
+            seed();
+            Map<String, Object> runs = new LinkedHashMap<>();
+            for (int size : pageSizes) {
+                runs.put("page-" + size, compare(size));
+            }
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("startedAt", LocalDateTime.now().toString());
+            result.put("server", baseUrl);
+            result.put("docs", docs);
+            result.put("contentChars", contentChars);
+            result.put("requestsPerMode", requests);
+            result.put("runs", runs);
+            result.put("serverListMetrics", serverMetrics().path("list"));
+            File out = LoadTestOutput.write(outputDir, "approval-list", result);
+            log("result " + out.getAbsolutePath());
+        } finally {
+            cleanup();
+        }
+    }
+
+    /** 테스트 문서 생성 (목록 최신순 앞쪽을 채움) */
+    private void seed() throws Exception {
+        String content = "결재 목록 응답 크기 측정용 본문입니다. ".repeat(contentChars / 20 + 1).substring(0, contentChars);
+        for (int i = 0; i < docs; i++) {
+            String body = json.writeValueAsString(Map.of(
+                    "title", MARK + i,
+                    "content", content,
+                    "category", "ETC"));
+            HttpResponse<String> res = http.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/approvals"))
+                    .header("Content-Type", "application/json")
+                    .header("X-Employee-Id", String.valueOf(author))
+                    .POST(HttpRequest.BodyPublishers.ofString(body)).build(), HttpResponse.BodyHandlers.ofString());
+            if (res.statusCode() != 200) {
+                throw new IllegalStateException("문서 생성 실패: HTTP " + res.statusCode() + " " + res.body());
+            }
+        }
+    }
+
+    /** 같은 페이지를 두 방식으로 번갈아 조회 (서버 캐시 / JIT 상태를 두 방식이 똑같이 받도록) */
+    private Map<String, Object> compare(int size) throws Exception {
+        Run preview = new Run();
+        Run full = new Run();
+        for (int i = 0; i < warmupRequests; i++) {
+            fetch(size, false, null);
+            fetch(size, true, null);
+        }
+        for (int i = 0; i < requests; i++) {
+            fetch(size, false, preview);
+            fetch(size, true, full);
+        }
+
+        Map<String, Object> r = new LinkedHashMap<>();
+        r.put("preview", preview.describe());
+        r.put("full", full.describe());
+        r.put("bytesSavedPerResponse", full.bytesPerResponse() - preview.bytesPerResponse());
+        r.put("bytesRatio", preview.bytesPerResponse() == 0 ? 0 : full.bytesPerResponse() / preview.bytesPerResponse());
+        log(String.format("page %d: full %.0fB p50 %.1fms -> preview %.0fB p50 %.1fms (x%.1f smaller)",
+                size, full.bytesPerResponse(), full.latency.percentileMillis(0.5),
+                preview.bytesPerResponse(), preview.latency.percentileMillis(0.5),
+                preview.bytesPerResponse() == 0 ? 0 : full.bytesPerResponse() / preview.bytesPerResponse()));
+        return r;
+    }
+
+    private void fetch(int size, boolean fullContent, Run run) throws Exception {
+        URI uri = URI.create(baseUrl + "/api/approvals?page=0&size=" + size + (fullContent ? "&full=true" : ""));
+        long t0 = System.nanoTime();
+        HttpResponse<byte[]> res = http.send(HttpRequest.newBuilder(uri).GET().build(), HttpResponse.BodyHandlers.ofByteArray());
+        long nanos = System.nanoTime() - t0;
+        if (run == null) return;
+        if (res.statusCode() != 200) {
+            run.errors++;
+            return;
+        }
+        run.latency.recordNanos(nanos);
+        run.bytes += res.body().length;
+    }
+
+    private JsonNode serverMetrics() {
+        try {
+            HttpResponse<String> res = http.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/approvals/metrics")).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            return json.readTree(res.body());
+        } catch (Exception e) {
+            return json.createObjectNode().put("error", String.valueOf(e.getMessage()));
+        }
+    }
+
+    /** 테스트 문서 정리 (결재선 먼저) */
+    private void cleanup() throws Exception {
+        try (Connection con = DriverManager.getConnection(jdbcUrl, dbUser, dbPassword);
+             PreparedStatement lines = con.prepareStatement("""
+                     delete l from approval_line l
+                       join approval_doc d on d.approval_doc_id = l.approval_doc_id
+                      where d.approval_title like ?
+                     """);
+             PreparedStatement docsStmt = con.prepareStatement("delete from approval_doc where approval_title like ?")) {
+            lines.setString(1, MARK + "%");
+            lines.executeUpdate();
+            docsStmt.setString(1, MARK + "%");
+            log("cleaned up " + docsStmt.executeUpdate() + " docs");
+        }
+    }
+
+    /** 한 방식의 누적 결과 (조회 스레드 하나에서만 갱신) */
+    private static final class Run {
+        final LatencyHistogram latency = new LatencyHistogram();
+        long bytes;
+        int errors;
+
+        double bytesPerResponse() {
+            long n = latency.count();
+            return n == 0 ? 0 : (double) bytes / n;
+        }
+
+        Map<String, Object> describe() {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("responses", latency.count());
+            m.put("errors", errors);
+            m.put("bytesPerResponse", bytesPerResponse());
+            m.put("latencyMs", latency.summary());
+            return m;
+        }
+    }
+
+    private static void log(String s) {
+        System.out.println("[approval-list] " + s);
+    }
+}
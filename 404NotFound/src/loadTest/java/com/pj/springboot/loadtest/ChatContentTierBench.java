@@ -0,0 +1,217 @@
+package com.pj.springboot.loadtest;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pj.springboot.chat.ChatMessage;
+import com.pj.springboot.chat.service.ChatContentStore;
+import com.pj.springboot.chat.service.ChatHotTailCache;
+
+/**
+ * 본문 크기 등급 벤치마크: 전부 inline 저장 vs 큰 본문 분리(tiered, ChatContentStore 기본 설정).
+ *
+ * 실제 ChatContentStore.prepare 를 DB 없이 호출해 본문 크기(lt.payloadSizes)별로 비교한다.
+ *  - retainedBytesPerMessage: 최근 메시지 캐시처럼 lt.messages 건을 들고 있을 때의 힙 증가분 (GC 후 측정)
+ *  - allocatedBytesPerMessage: prepare 1건이 할당한 바이트 (gzip 포함)
+ *  - wireBytesPerMessage: 방송 / 히스토리 응답에 실리는 메시지 JSON 크기
+ *  - dbBytesPerMessage: chat_message 본문 + chat_message_blob 압축 원문
+ * 끝으로 큰 본문 메시지가 최근 메시지 캐시(첫 페이지 히스토리)를 거쳐도 fullSize 를 유지하는지 확인 (아니면 exit 1).
+ */
+public final class ChatContentTierBench {
+
+    private static final String[] WORDS = {
+            "회의", "자료", "공유드립니다", "확인", "부탁드립니다", "일정", "변경", "검토", "결재", "요청",
+            "report", "draft", "v2", "meeting", "2025-06-01", "14:00", "https://intra.local/docs/", "OK", "감사합니다", "\n"
+    };
+
+    private final String outputDir = LoadTestConfig.str("lt.outputDir", "build/loadtest");
+    private final List<Integer> payloadSizes = LoadTestConfig.ints("lt.payloadSizes", "80,1024,4096,16384,65536");
+    private final int messages = Integer.parseInt(LoadTestConfig.str("lt.messages", "2000"));
+    private final int inlineMaxBytes = Integer.parseInt(LoadTestConfig.str("lt.inlineMaxBytes", "2048"));
+    private final int maxBytes = Integer.parseInt(LoadTestConfig.str("lt.maxBytes", "65536"));
+    private final int previewChars = Integer.parseInt(LoadTestConfig.str("lt.previewChars", "300"));
+
+    // 서버와 같은 ObjectMapper 구성 (JavaTimeModule 등 자동 등록)
+    private final ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+
+    public static void main(String[] args) throws Exception {
+        int exit = new ChatContentTierBench().run();
+        System.exit(exit);
+    }
+
+    private int run() throws Exception {
+        log("messages " + messages + ", payload sizes " + payloadSizes + ", inline max " + inlineMaxBytes);
+
+        Map<String, Object> runs = new LinkedHashMap<>();
+        for (int size : payloadSizes) {
+            int bytes = Math.min(size, maxBytes);
+            measure(inlineStore(), bytes, Math.max(1, messages / 4));   // 워밍업
+            Run inline = measure(inlineStore(), bytes, messages);
+            measure(tieredStore(), bytes, Math.max(1, messages / 4));
+            Run tiered = measure(tieredStore(), bytes, messages);
+
+            Map<String, Object> r = new LinkedHashMap<>();
+            r.put("inline", inline.describe());
+            r.put("tiered", tiered.describe());
+            r.put("retainedRatio", tiered.retainedPerMessage() == 0 ? 0 : inline.retainedPerMessage() / tiered.retainedPerMessage());
+            r.put("wireRatio", inline.wirePerMessage() / tiered.wirePerMessage());
+            r.put("dbRatio", inline.dbPerMessage() / tiered.dbPerMessage());
+            runs.put("payload-" + bytes, r);
+            log(String.format("payload %dB: heap %.0fB -> %.0fB, wire %.0fB -> %.0fB, db %.0fB -> %.0fB, prepare %.1fus -> %.1fus",
+                    bytes, inline.retainedPerMessage(), tiered.retainedPerMessage(),
+                    inline.wirePerMessage(), tiered.wirePerMessage(),
+                    inline.dbPerMessage(), tiered.dbPerMessage(),
+                    inline.prepareMicros(), tiered.prepareMicros()));
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("startedAt", LocalDateTime.now().toString());
+        result.put("messages", messages);
+        result.put("inlineMaxBytes", inlineMaxBytes);
+        result.put("previewChars", previewChars);
+        result.put("runs", runs);
+        boolean fullSizeKept = hotTailKeepsFullSize();
+        result.put("hotTailKeepsFullSize", fullSizeKept);
+        File out = LoadTestOutput.write(outputDir, "chat-content-tier", result);
+        log("result " + out.getAbsolutePath());
+        log(fullSizeKept ? "OK" : "FAILED: 최근 메시지 캐시가 큰 본문 표시(fullSize)를 잃음");
+        return fullSizeKept ? 0 : 1;
+    }
+
+    /** 큰 본문 메시지를 캐시된 방에 추가(append)·시드(seed)한 뒤 첫 페이지에 fullSize 가 남아 있는지 */
+    private boolean hotTailKeepsFullSize() {
+        ChatMessage large = message(0, text(new SplittableRandom(1), Math.min(maxBytes, inlineMaxBytes * 4)));
+        tieredStore().prepare(large);
+        if (large.getFullSize() == null) return false;
+
+        // append 경로: 빈 방을 캐시에 올려 둔 뒤 전송
+        ChatHotTailCache appended = new ChatHotTailCache(true, 100, 1 << 20, "simple");
+        appended.newest(large.getRoomId(), 10, n -> List.of(), roomId -> List.of());
+        appended.append(large);
+        List<ChatMessage> page1 = appended.newest(large.getRoomId(), 10, n -> List.of(), roomId -> List.of());
+
+        // seed 경로: DB 에서 읽은 최신 메시지로 캐시 채움
+        ChatHotTailCache seeded = new ChatHotTailCache(true, 100, 1 << 20, "simple");
+        seeded.newest(large.getRoomId(), 10, n -> List.of(large), roomId -> List.of());
+        List<ChatMessage> page2 = seeded.newest(large.getRoomId(), 10, n -> List.of(), roomId -> List.of());
+
+        return page1.size() == 1 && large.getFullSize().equals(page1.get(0).getFullSize())
+                && page2.size() == 1 && large.getFullSize().equals(page2.get(0).getFullSize());
+    }
+
+    /** 기존 방식: 상한까지 모두 chat_message 에 그대로 */
+    private ChatContentStore inlineStore() {
+        return new ChatContentStore(null, null, maxBytes, maxBytes, previewChars);
+    }
+
+    private ChatContentStore tieredStore() {
+        return new ChatContentStore(null, null, inlineMaxBytes, maxBytes, previewChars);
+    }
+
+    private Run measure(ChatContentStore store, int payloadBytes, int count) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().threadId();
+        SplittableRandom random = new SplittableRandom(payloadBytes);
+        List<ChatMessage> kept = new ArrayList<>(count);
+
+        long heap0 = usedHeapAfterGc();
+        long prepareNanos = 0, allocated = 0, dbBytes = 0;
+        for (int i = 0; i < count; i++) {
+            // 원문은 prepare 이후 버려지도록 매번 새로 만든다 (캐시에 남는 건 메시지뿐)
+            ChatMessage m = message(i, text(random, payloadBytes));
+            long b0 = threads.getThreadAllocatedBytes(tid);
+            long t0 = System.nanoTime();
+            byte[] packed = store.prepare(m);
+            prepareNanos += System.nanoTime() - t0;
+            allocated += threads.getThreadAllocatedBytes(tid) - b0;
+            dbBytes += m.getContent().getBytes(StandardCharsets.UTF_8).length + (packed == null ? 0 : packed.length);
+            kept.add(m);
+        }
+        long retained = Math.max(0, usedHeapAfterGc() - heap0);
+
+        long wire = 0, serializeNanos = 0;
+        for (ChatMessage m : kept) {
+            long t0 = System.nanoTime();
+            wire += mapper.writeValueAsBytes(m).length;
+            serializeNanos += System.nanoTime() - t0;
+        }
+        return new Run(count, retained, allocated, wire, dbBytes, prepareNanos, serializeNanos);
+    }
+
+    private static ChatMessage message(int i, String content) {
+        ChatMessage m = new ChatMessage();
+        m.setId(i + 1);
+        m.setRoomId(1 + i % 100);
+        m.setSenderId(20250000 + i % 1000);
+        m.setContent(content);
+        m.setTime(LocalDateTime.now());
+        return m;
+    }
+
+    /** 업무 메신저 느낌의 단어 조합, UTF-8 로 bytes 이하 */
+    private static String text(SplittableRandom random, int bytes) {
+        StringBuilder sb = new StringBuilder(bytes);
+        int used = 0;
+        while (true) {
+            String w = WORDS[random.nextInt(WORDS.length)];
+            int n = w.getBytes(StandardCharsets.UTF_8).length + 1;
+            if (used + n > bytes) break;
+            sb.append(w).append(' ');
+            used += n;
+        }
+        while (used++ < bytes) sb.append('.');
+        return sb.toString();
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    private record Run(int count, long retained, long allocated, long wire, long db, long prepareNanos, long serializeNanos) {
+        double retainedPerMessage() {
+            return (double) retained / count;
+        }
+
+        double wirePerMessage() {
+            return (double) wire / count;
+        }
+
+        double dbPerMessage() {
+            return (double) db / count;
+        }
+
+        double prepareMicros() {
+            return prepareNanos / 1e3 / count;
+        }
+
+        Map<String, Object> describe() {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("retainedBytesPerMessage", retainedPerMessage());
+            m.put("allocatedBytesPerMessage", (double) allocated / count);
+            m.put("wireBytesPerMessage", wirePerMessage());
+            m.put("dbBytesPerMessage", dbPerMessage());
+            m.put("prepareMicros", prepareMicros());
+            m.put("serializeMicros", serializeNanos / 1e3 / count);
+            return m;
+        }
+    }
+
+    private static void log(String s) {
+        System.out.println("[chat-content-tier] " + s);
+    }
+}
@@ -0,0 +1,128 @@
+package com.pj.springboot.loadtest;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import com.pj.springboot.chat.service.ChatAlertAggregator.RoomAlert;
+import com.pj.springboot.chat.service.ChatFanoutService;
+
+/**
+ * 알림 fan-out 마이크로벤치마크: 사용자마다 convertAndSend(직렬화 N번) vs ChatFanoutService(직렬화 1번).
+ *
+ * 브로커 대신 받은 메시지 수만 세는 채널에 보내므로 순수하게 변환/메시지 생성 비용만 잰다.
+ * 수신자 수(lt.recipients)별로 fan-out 1회 평균 시간과 스레드 할당 바이트(GC 압력)를 비교.
+ */
+public final class ChatFanoutBench {
+
+    private final String outputDir = LoadTestConfig.str("lt.outputDir", "build/loadtest");
+    private final List<Integer> recipients = LoadTestConfig.ints("lt.recipients", "1,10,100,1000");
+    private final int warmupDeliveries = Integer.parseInt(LoadTestConfig.str("lt.warmupDeliveries", "2000000"));
+    private final int deliveries = Integer.parseInt(LoadTestConfig.str("lt.deliveries", "5000000"));
+
+    private final LongAdder sent = new LongAdder();
+    private final SimpMessagingTemplate template;
+    private final ChatFanoutService fanout;
+
+    private ChatFanoutBench() {
+        MessageChannel counting = (message, timeout) -> {
+            sent.increment();
+            return true;
+        };
+        this.template = new SimpMessagingTemplate(counting);
+        // 서버와 같은 ObjectMapper 구성 (JavaTimeModule 등 자동 등록)
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
+        converter.setObjectMapper(Jackson2ObjectMapperBuilder.json().build());
+        this.template.setMessageConverter(converter);
+        this.fanout = new ChatFanoutService(template);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new ChatFanoutBench().run();
+        System.exit(0);
+    }
+
+    private void run() throws Exception {
+        RoomAlert payload = new RoomAlert("NEW_MESSAGE", 1234, 20250001,
+                "안녕하세요, 회의 자료 공유드립니다. 확인 부탁드립니다.", LocalDateTime.now(), 1);
+
+        Map<String, Object> runs = new LinkedHashMap<>();
+        for (int n : recipients) {
+            int[] userIds = new int[n];
+            for (int i = 0; i < n; i++) userIds[i] = 20250000 + i;
+            int rounds = Math.max(1, deliveries / n);
+
+            measure(() -> perUser(userIds, payload), Math.max(1, warmupDeliveries / n));
+            Run perUser = measure(() -> perUser(userIds, payload), rounds);
+            measure(() -> fanout.sendToUsers(userIds, "alerts", payload), Math.max(1, warmupDeliveries / n));
+            Run encodeOnce = measure(() -> fanout.sendToUsers(userIds, "alerts", payload), rounds);
+
+            Map<String, Object> r = new LinkedHashMap<>();
+            r.put("rounds", rounds);
+            r.put("perUser", perUser.describe());
+            r.put("encodeOnce", encodeOnce.describe());
+            r.put("speedup", perUser.nanosPerRound() / encodeOnce.nanosPerRound());
+            r.put("allocationRatio", encodeOnce.bytesPerRound() == 0 ? 0 : perUser.bytesPerRound() / encodeOnce.bytesPerRound());
+            runs.put("recipients-" + n, r);
+            log(String.format("recipients %d: per-user %.1fus, encode-once %.1fus (x%.2f), alloc %.0fB -> %.0fB",
+                    n, perUser.nanosPerRound() / 1e3, encodeOnce.nanosPerRound() / 1e3,
+                    perUser.nanosPerRound() / encodeOnce.nanosPerRound(),
+                    perUser.bytesPerRound(), encodeOnce.bytesPerRound()));
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("startedAt", LocalDateTime.now().toString());
+        result.put("deliveriesPerRun", deliveries);
+        result.put("runs", runs);
+        File out = LoadTestOutput.write(outputDir, "chat-fanout", result);
+        log("result " + out.getAbsolutePath() + " (delivered " + sent.sum() + ")");
+    }
+
+    /** 기존 방식: 사용자마다 convertAndSend → payload 직렬화도 사용자 수만큼 */
+    private void perUser(int[] userIds, Object payload) {
+        for (int uid : userIds) {
+            template.convertAndSend("/topic/users/" + uid + "/alerts", payload);
+        }
+    }
+
+    private static Run measure(Runnable fanoutOnce, int rounds) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().threadId();
+        long b0 = threads.getThreadAllocatedBytes(tid);
+        long t0 = System.nanoTime();
+        for (int i = 0; i < rounds; i++) fanoutOnce.run();
+        long nanos = System.nanoTime() - t0;
+        long bytes = threads.getThreadAllocatedBytes(tid) - b0;
+        return new Run(rounds, nanos, bytes);
+    }
+
+    private record Run(int rounds, long nanos, long bytes) {
+        double nanosPerRound() {
+            return (double) nanos / rounds;
+        }
+
+        double bytesPerRound() {
+            return (double) bytes / rounds;
+        }
+
+        Map<String, Object> describe() {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("micros", nanosPerRound() / 1e3);
+            m.put("allocatedBytes", bytesPerRound());
+            return m;
+        }
+    }
+
+    private static void log(String s) {
+        System.out.println("[chat-fanout] " + s);
+    }
+}
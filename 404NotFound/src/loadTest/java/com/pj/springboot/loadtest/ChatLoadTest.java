@@ -0,0 +1,437 @@
+package com.pj.springboot.loadtest;
+
+import java.io.File;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.springframework.messaging.converter.ByteArrayMessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * STOMP/SockJS 채팅 부하 테스트.
+ *
+ * 1) 테스트 사용자(lt.userIdBase 부터 lt.clients 명)를 DB에 직접 준비 (INSERT IGNORE, 재실행 가능)
+ * 2) roomSize 명씩 그룹방 생성 (REST)
+ * 3) 사용자마다 로그인 → /ws-chat 접속 → 방 토픽 + 알림 토픽 구독
+ * 4) 각 클라이언트가 sendRatePerClient 속도로 전송, 본문에 송신 시각(nanoTime) 포함
+ *    → 방 토픽 수신(전송→수신) / 알림 수신(전송→알림) 지연 시간 측정
+ * 5) warmup 이후 duration 동안만 집계, 서버 /api/chat/metrics (jvm 포함) 전/후 스냅샷과 함께 JSON 저장
+ * 6) lt.baseline 이 있으면 p99 / 처리량을 비교해 regressionThreshold 이상 나빠지면 exit 2
+ * 7) 정리: 방은 멤버 전원 나가기(REST)로 지우고(서버 캐시도 같이 정리), 남은 행과 테스트 사용자/근태 행은 DB에서 삭제
+ *
+ * 대상 백엔드는 로컬 MySQL(404NotFound.sql 스키마)에 붙어 실행 중이어야 한다.
+ * 속도 제한(app.chat.rate-limit.*)에 걸리지 않도록 전송 속도/방 크기를 조절할 것.
+ */
+public final class ChatLoadTest {
+
+    private static final String MARK = "lt:";
+
+    private final LoadTestConfig cfg;
+    private final LoadTestFixtures fixtures;
+    private final ObjectMapper json = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private final HttpClient http = HttpClient.newBuilder().build();
+
+    private final LatencyHistogram messageLatency = new LatencyHistogram();
+    private final LatencyHistogram alertLatency = new LatencyHistogram();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder sendErrors = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder alerts = new LongAdder();
+    private final LongAdder digests = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder transportErrors = new LongAdder();
+
+    private volatile boolean measuring;
+
+    private ChatLoadTest(LoadTestConfig cfg) {
+        this.cfg = cfg;
+        this.fixtures = new LoadTestFixtures(cfg);
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig cfg = LoadTestConfig.fromSystemProperties();
+        int exit = new ChatLoadTest(cfg).run();
+        System.exit(exit);
+    }
+
+    private int run() throws Exception {
+        log("config " + cfg.describe());
+
+        fixtures.seedUsers(cfg.userIdBase(), cfg.clients());
+        log("seeded " + cfg.clients() + " users");
+        List<int[]> rooms = new ArrayList<>();
+        try {
+            createRooms(rooms);
+            return measure(rooms);
+        } finally {
+            cleanup(rooms);
+        }
+    }
+
+    private int measure(List<int[]> rooms) throws Exception {
+        ThreadPoolTaskScheduler heartbeat = new ThreadPoolTaskScheduler();
+        heartbeat.setPoolSize(2);
+        heartbeat.setThreadNamePrefix("lt-heartbeat-");
+        heartbeat.initialize();
+
+        WebSocketStompClient stomp = new WebSocketStompClient(
+                new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+        stomp.setMessageConverter(new ByteArrayMessageConverter());
+        stomp.setTaskScheduler(heartbeat);
+        stomp.setDefaultHeartbeat(new long[] { 10_000, 10_000 });
+
+        List<Client> clients = connectAll(stomp, rooms);
+        log("connected " + clients.size() + "/" + cfg.clients());
+
+        ScheduledExecutorService senders = Executors.newScheduledThreadPool(
+                Math.max(2, Runtime.getRuntime().availableProcessors()), r -> {
+                    Thread t = new Thread(r, "lt-sender");
+                    t.setDaemon(true);
+                    return t;
+                });
+        long periodMicros = (long) (1_000_000 / Math.max(0.001, cfg.sendRatePerClient()));
+        for (Client c : clients) {
+            long jitter = ThreadLocalRandom.current().nextLong(periodMicros);
+            senders.scheduleAtFixedRate(() -> send(c), jitter, periodMicros, TimeUnit.MICROSECONDS);
+        }
+
+        Thread.sleep(cfg.warmup().toMillis());
+        JsonNode serverBefore = serverMetrics();
+        ClientJvm jvmBefore = ClientJvm.now();
+        resetCounters();
+        measuring = true;
+        long t0 = System.nanoTime();
+        Thread.sleep(cfg.duration().toMillis());
+        measuring = false;
+        double seconds = (System.nanoTime() - t0) / 1e9;
+        JsonNode serverAfter = serverMetrics();
+        ClientJvm jvmAfter = ClientJvm.now();
+
+        senders.shutdownNow();
+        for (Client c : clients) c.session.disconnect();
+        stomp.stop();
+        heartbeat.shutdown();
+
+        Map<String, Object> result = result(clients.size(), seconds, serverBefore, serverAfter, jvmBefore, jvmAfter);
+        File out = LoadTestOutput.write(cfg.outputDir(), "chat-loadtest", result);
+        log("result " + out.getAbsolutePath());
+        log("message latency " + messageLatency.summary() + ", alert latency " + alertLatency.summary());
+
+        return compareWithBaseline(result);
+    }
+
+    // ===== 준비 =====
+
+    /** roomSize 명씩 그룹방 생성 → 방마다 [roomId, 멤버...] (중간에 실패해도 만든 방까지는 정리되도록 rooms 에 바로 추가) */
+    private void createRooms(List<int[]> rooms) throws Exception {
+        for (int r = 0; r < cfg.rooms(); r++) {
+            int from = r * cfg.roomSize();
+            int to = Math.min(cfg.clients(), from + cfg.roomSize());
+            List<Integer> members = new ArrayList<>();
+            for (int i = from; i < to; i++) members.add(cfg.userIdBase() + i);
+            if (members.size() < 2) members.add(cfg.userIdBase());   // 그룹방은 2명 이상
+
+            String body = json.writeValueAsString(Map.of("name", "loadtest-" + r, "memberIds", members));
+            HttpResponse<String> res = http.send(HttpRequest.newBuilder(URI.create(cfg.baseUrl() + "/api/chat/rooms/group"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body)).build(), HttpResponse.BodyHandlers.ofString());
+            if (res.statusCode() != 200) throw new IllegalStateException("room create failed: " + res.body());
+            int roomId = json.readTree(res.body()).get("roomId").asInt();
+
+            int[] row = new int[members.size() + 1];
+            row[0] = roomId;
+            for (int i = 0; i < members.size(); i++) row[i + 1] = members.get(i);
+            rooms.add(row);
+        }
+        log("created " + rooms.size() + " rooms");
+    }
+
+    /** 테스트 방 / 사용자 정리 (실패해도 결과는 이미 저장됨) */
+    private void cleanup(List<int[]> rooms) {
+        try {
+            for (int[] room : rooms) {
+                for (int i = 1; i < room.length; i++) leave(room[0], room[i]);
+            }
+            List<Integer> roomIds = rooms.stream().map(r -> r[0]).toList();
+            log("cleaned up " + fixtures.cleanup(cfg.userIdBase(), cfg.clients(), roomIds));
+        } catch (Exception e) {
+            log("cleanup failed: " + e);
+        }
+    }
+
+    private void leave(int roomId, int userId) {
+        try {
+            http.send(HttpRequest.newBuilder(URI.create(cfg.baseUrl() + "/api/chat/rooms/" + roomId + "/leave?me=" + userId))
+                    .DELETE().build(), HttpResponse.BodyHandlers.discarding());
+        } catch (Exception e) {
+            // 남은 행은 DB 정리에서 삭제
+        }
+    }
+
+    private List<Client> connectAll(WebSocketStompClient stomp, List<int[]> rooms) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(cfg.connectParallelism());
+        List<CompletableFuture<Client>> futures = new ArrayList<>();
+        for (int[] room : rooms) {
+            for (int i = 1; i < room.length; i++) {
+                int roomId = room[0], userId = room[i];
+                if (userId - cfg.userIdBase() >= cfg.clients()) continue;
+                futures.add(CompletableFuture.supplyAsync(() -> connect(stomp, roomId, userId), pool));
+            }
+        }
+        List<Client> clients = new ArrayList<>();
+        for (CompletableFuture<Client> f : futures) {
+            try {
+                clients.add(f.join());
+            } catch (RuntimeException e) {
+                transportErrors.increment();
+            }
+        }
+        pool.shutdown();
+        return clients;
+    }
+
+    private Client connect(WebSocketStompClient stomp, int roomId, int userId) {
+        try {
+            String cookie = login(userId);
+            WebSocketHttpHeaders headers = new WebSocketHttpHeaders();
+            headers.add("Cookie", cookie);
+            StompSession session = stomp.connectAsync(cfg.baseUrl() + "/ws-chat", headers, new StompSessionHandlerAdapter() {
+                @Override
+                public void handleTransportError(StompSession s, Throwable ex) {
+                    transportErrors.increment();
+                }
+            }).get(30, TimeUnit.SECONDS);
+
+            session.subscribe("/topic/rooms/" + roomId, handler(this::onRoomFrame));
+            session.subscribe("/topic/users/" + userId + "/alerts", handler(this::onAlertFrame));
+            return new Client(userId, roomId, session);
+        } catch (Exception e) {
+            throw new IllegalStateException("connect failed: " + userId, e);
+        }
+    }
+
+    /** 로그인 후 JSESSIONID 쿠키 */
+    private String login(int userId) throws Exception {
+        String body = json.writeValueAsString(Map.of("loginId", "lt" + userId, "password", LoadTestFixtures.PASSWORD));
+        HttpResponse<String> res = http.send(HttpRequest.newBuilder(URI.create(cfg.baseUrl() + "/api/employees/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build(), HttpResponse.BodyHandlers.ofString());
+        if (res.statusCode() != 200) throw new IllegalStateException("login failed: " + res.body());
+        return res.headers().allValues("Set-Cookie").stream()
+                .filter(c -> c.startsWith("JSESSIONID="))
+                .map(c -> c.split(";", 2)[0])
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("no session cookie"));
+    }
+
+    // ===== 전송 / 수신 =====
+
+    private void send(Client c) {
+        try {
+            StringBuilder content = new StringBuilder(MARK).append(System.nanoTime()).append(':').append(c.userId).append(' ');
+            while (content.length() < cfg.payloadBytes()) content.append('x');
+            StompHeaders h = new StompHeaders();
+            h.setDestination("/app/rooms/" + c.roomId + "/send");
+            h.setContentType(MimeTypeUtils.APPLICATION_JSON);
+            c.session.send(h, json.writeValueAsBytes(Map.of("content", content.toString())));
+            sent.increment();
+        } catch (Exception e) {
+            sendErrors.increment();
+        }
+    }
+
+    private void onRoomFrame(JsonNode frame) {
+        if (frame.has("type")) return;   // TYPING 등 메시지가 아닌 이벤트
+        long sentAt = sentAt(frame.path("content").asText(null));
+        if (sentAt < 0 || !measuring) return;
+        received.increment();
+        messageLatency.recordNanos(System.nanoTime() - sentAt);
+    }
+
+    private void onAlertFrame(JsonNode frame) {
+        String type = frame.path("type").asText("");
+        if ("RATE_LIMITED".equals(type)) {
+            rateLimited.increment();
+            return;
+        }
+        if (!measuring) return;
+        if ("DIGEST".equals(type)) {
+            digests.increment();
+            return;   // 마지막 미리보기 기준이라 지연 측정에서는 제외
+        }
+        if (!"NEW_MESSAGE".equals(type)) return;
+        long sentAt = sentAt(frame.path("preview").asText(null));
+        if (sentAt < 0) return;
+        alerts.increment();
+        alertLatency.recordNanos(System.nanoTime() - sentAt);
+    }
+
+    private static long sentAt(String content) {
+        if (content == null || !content.startsWith(MARK)) return -1;
+        int end = content.indexOf(':', MARK.length());
+        if (end < 0) return -1;
+        try {
+            return Long.parseLong(content.substring(MARK.length(), end));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private StompFrameHandler handler(Consumer<JsonNode> onFrame) {
+        return new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return byte[].class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                try {
+                    onFrame.accept(json.readTree((byte[]) payload));
+                } catch (Exception e) {
+                    transportErrors.increment();
+                }
+            }
+        };
+    }
+
+    // ===== 결과 =====
+
+    private void resetCounters() {
+        sent.reset();
+        sendErrors.reset();
+        received.reset();
+        alerts.reset();
+        digests.reset();
+        rateLimited.reset();
+    }
+
+    private JsonNode serverMetrics() {
+        try {
+            HttpResponse<String> res = http.send(HttpRequest.newBuilder(URI.create(cfg.baseUrl() + "/api/chat/metrics")).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            return json.readTree(res.body());
+        } catch (Exception e) {
+            return json.createObjectNode().put("error", String.valueOf(e.getMessage()));
+        }
+    }
+
+    private Map<String, Object> result(int connected, double seconds, JsonNode serverBefore, JsonNode serverAfter,
+                                       ClientJvm jvmBefore, ClientJvm jvmAfter) {
+        Map<String, Object> throughput = new LinkedHashMap<>();
+        throughput.put("sentPerSec", sent.sum() / seconds);
+        throughput.put("deliveredPerSec", received.sum() / seconds);
+        throughput.put("alertsPerSec", (alerts.sum() + digests.sum()) / seconds);
+
+        Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("message", messageLatency.summary());
+        latency.put("alert", alertLatency.summary());
+
+        Map<String, Object> counts = new LinkedHashMap<>();
+        counts.put("sent", sent.sum());
+        counts.put("sendErrors", sendErrors.sum());
+        counts.put("received", received.sum());
+        counts.put("alerts", alerts.sum());
+        counts.put("digests", digests.sum());
+        counts.put("rateLimited", rateLimited.sum());
+        counts.put("transportErrors", transportErrors.sum());
+
+        Map<String, Object> server = new LinkedHashMap<>();
+        server.put("jvmBefore", serverBefore.path("jvm"));
+        server.put("jvmAfter", serverAfter.path("jvm"));
+        server.put("metricsAfter", serverAfter);
+
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("startedAt", LocalDateTime.now().toString());
+        m.put("config", cfg.describe());
+        m.put("connected", connected);
+        m.put("seconds", seconds);
+        m.put("throughput", throughput);
+        m.put("latencyMs", latency);
+        m.put("counts", counts);
+        m.put("server", server);
+        m.put("loadClient", jvmAfter.diff(jvmBefore));
+        return m;
+    }
+
+    /** 기준 결과 대비 p99 / 처리량 회귀 검사 (0: 통과, 2: 회귀) */
+    private int compareWithBaseline(Map<String, Object> result) throws Exception {
+        if (cfg.baseline().isEmpty()) return 0;
+        JsonNode base = json.readTree(new File(cfg.baseline()));
+        JsonNode cur = json.valueToTree(result);
+
+        int exit = 0;
+        double baseP99 = base.at("/latencyMs/message/p99").asDouble();
+        double curP99 = cur.at("/latencyMs/message/p99").asDouble();
+        if (baseP99 > 0 && curP99 > baseP99 * (1 + cfg.regressionThreshold())) {
+            log(String.format("REGRESSION message p99 %.2fms -> %.2fms", baseP99, curP99));
+            exit = 2;
+        }
+        double baseTput = base.at("/throughput/deliveredPerSec").asDouble();
+        double curTput = cur.at("/throughput/deliveredPerSec").asDouble();
+        if (baseTput > 0 && curTput < baseTput * (1 - cfg.regressionThreshold())) {
+            log(String.format("REGRESSION delivered/s %.1f -> %.1f", baseTput, curTput));
+            exit = 2;
+        }
+        if (exit == 0) log("baseline ok (p99 " + baseP99 + " -> " + curP99 + ", delivered/s " + baseTput + " -> " + curTput + ")");
+        return exit;
+    }
+
+    private static void log(String s) {
+        System.out.println("[chat-loadtest] " + s);
+    }
+
+    private record Client(int userId, int roomId, StompSession session) {}
+
+    /** 부하 생성 JVM 자체의 힙/GC (클라이언트가 병목인지 확인용) */
+    private record ClientJvm(long heapUsed, long gcCount, long gcMillis) {
+        static ClientJvm now() {
+            long count = 0, millis = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                count += Math.max(0, gc.getCollectionCount());
+                millis += Math.max(0, gc.getCollectionTime());
+            }
+            return new ClientJvm(ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed(), count, millis);
+        }
+
+        Map<String, Object> diff(ClientJvm before) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("heapUsedMb", heapUsed / (1024.0 * 1024));
+            m.put("gcCount", gcCount - before.gcCount);
+            m.put("gcMillis", gcMillis - before.gcMillis);
+            return m;
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.pj.springboot.loadtest;
+
+import java.io.File;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+
+import org.springframework.messaging.converter.ByteArrayMessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * relay 모드 2-노드 전달 테스트 (같은 브로커에 relay 로 붙은 백엔드 2대 대상).
+ *
+ * 실행 준비 (application-embedded-broker.properties 참고):
+ *  - A: --spring.profiles.active=embedded-broker                       (8081, 내장 브로커 기동)
+ *  - B: --server.port=8082 --app.chat.broker.mode=relay                 (같은 브로커로 relay)
+ *
+ * 사용자 3명(u0: A 에서 방 보는 중, u1: B 에서 방 보는 중, u2: B 에서 알림만)으로 확인:
+ *  1) A 로 보낸 메시지가 B 의 방 구독자에게, B 로 보낸 메시지가 A 의 방 구독자에게 전달
+ *  2) 다른 노드에서 방을 보고 있는 사용자(u1)에게는 알림을 보내지 않고, 안 보는 사용자(u2)에게만 알림
+ *  3) B 로 보낸 메시지가 A 의 첫 페이지 히스토리에 보임 (노드별 최근 메시지 캐시가 낡지 않음)
+ *  4) A 에서 나간 사용자(u2)가 B 로 보내면 거절 (B 가 이전 멤버 정보를 들고 있지 않음)
+ *  5) A 의 presence 조회에서 B 에만 접속한 사용자(u1)가 ONLINE
+ *
+ * 끝나면 테스트 방/사용자 삭제. 하나라도 실패하면 exit 1.
+ */
+public final class ChatRelayDeliveryTest {
+
+    private static final String MARK = "lt:relay:";
+
+    private final LoadTestConfig cfg = LoadTestConfig.fromSystemProperties();
+    private final LoadTestFixtures fixtures = new LoadTestFixtures(cfg);
+    private final List<String> baseUrls = List.of(LoadTestConfig.str("lt.baseUrls", "http://localhost:8081,http://localhost:8082").split("\\s*,\\s*"));
+    private final int userIdBase = Integer.parseInt(LoadTestConfig.str("lt.userIdBase", "90900000"));
+    // 노드 간 user registry broadcast 가 한 바퀴 돌 시간
+    private final Duration settle = Duration.parse(LoadTestConfig.str("lt.settle", "PT25S"));
+    private final Duration timeout = Duration.parse(LoadTestConfig.str("lt.timeout", "PT10S"));
+
+    private final ObjectMapper json = new ObjectMapper();
+    private final HttpClient http = HttpClient.newBuilder().build();
+    private final Map<String, Object> checks = new LinkedHashMap<>();
+
+    public static void main(String[] args) throws Exception {
+        int exit = new ChatRelayDeliveryTest().run();
+        System.exit(exit);
+    }
+
+    private int run() throws Exception {
+        if (baseUrls.size() < 2) throw new IllegalArgumentException("lt.baseUrls 에 백엔드 2대가 필요합니다: " + baseUrls);
+        String a = baseUrls.get(0), b = baseUrls.get(1);
+        int u0 = userIdBase, u1 = userIdBase + 1, u2 = userIdBase + 2;
+        log("nodes A=" + a + ", B=" + b);
+
+        ThreadPoolTaskScheduler heartbeat = new ThreadPoolTaskScheduler();
+        heartbeat.setPoolSize(1);
+        heartbeat.setThreadNamePrefix("lt-heartbeat-");
+        heartbeat.initialize();
+        WebSocketStompClient stomp = new WebSocketStompClient(
+                new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+        stomp.setMessageConverter(new ByteArrayMessageConverter());
+        stomp.setTaskScheduler(heartbeat);
+        stomp.setDefaultHeartbeat(new long[] { 10_000, 10_000 });
+
+        List<Integer> rooms = new ArrayList<>();
+        List<Client> clients = new ArrayList<>();
+        try {
+            fixtures.seedUsers(userIdBase, 3);
+            int roomId = createRoom(a, List.of(u0, u1, u2));
+            rooms.add(roomId);
+
+            Client c0 = connect(stomp, a, u0, roomId, true);
+            Client c1 = connect(stomp, b, u1, roomId, true);
+            Client c2 = connect(stomp, b, u2, roomId, false);
+            clients.addAll(List.of(c0, c1, c2));
+
+            // 노드별 캐시를 먼저 채워 둠: A 의 최근 메시지, B 의 u2 멤버십
+            history(a, roomId);
+            c2.send(roomId, MARK + "warm");
+            await(() -> c0.roomFrame(MARK + "warm") != null);
+
+            log("waiting " + settle + " for user registry broadcast");
+            Thread.sleep(settle.toMillis());
+
+            // 1) A → B
+            c0.send(roomId, MARK + "m1");
+            check("deliveredAtoB", await(() -> c1.roomFrame(MARK + "m1") != null));
+            // 2) 알림: 안 보는 u2 는 받고, B 에서 보고 있는 u1 은 받지 않음
+            check("alertToIdleUser", await(() -> c2.alert(n -> "NEW_MESSAGE".equals(n.path("type").asText())
+                    && n.path("preview").asText("").startsWith(MARK + "m1")) != null));
+            check("noAlertToRemoteViewer", c1.alert(n -> n.path("preview").asText("").startsWith(MARK + "m1")) == null);
+
+            // 1) B → A
+            c1.send(roomId, MARK + "m2");
+            check("deliveredBtoA", await(() -> c0.roomFrame(MARK + "m2") != null));
+
+            // 3) B 로 들어온 메시지가 A 의 첫 페이지에 (write-behind flush 를 기다릴 수 있게 재시도)
+            check("historyOnAIncludesB", await(() -> history(a, roomId).contains(MARK + "m2")));
+
+            // 4) A 에서 나간 u2 가 B 로 전송 → 거절
+            leave(a, roomId, u2);
+            c2.send(roomId, MARK + "m3");
+            check("removedMemberRejected", await(() -> c2.alert(n -> "SEND_REJECTED".equals(n.path("type").asText())) != null));
+            check("removedMemberNotDelivered", c0.roomFrame(MARK + "m3") == null);
+
+            // 5) presence
+            check("remotePresenceOnline", "ONLINE".equals(presence(a, u1)));
+        } catch (Exception e) {
+            checks.put("error", String.valueOf(e.getMessage()));
+            log("error " + e);
+        } finally {
+            for (Client c : clients) c.session.disconnect();
+            stomp.stop();
+            heartbeat.shutdown();
+            checks.put("cleanup", fixtures.cleanup(userIdBase, 3, rooms));
+        }
+
+        boolean ok = !checks.containsKey("error")
+                && checks.values().stream().noneMatch(Boolean.FALSE::equals);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("startedAt", LocalDateTime.now().toString());
+        result.put("nodes", baseUrls);
+        result.put("ok", ok);
+        result.put("checks", checks);
+        File out = LoadTestOutput.write(cfg.outputDir(), "chat-relay-delivery", result);
+        log("result " + out.getAbsolutePath());
+        log("checks " + checks);
+        log(ok ? "OK" : "FAILED");
+        return ok ? 0 : 1;
+    }
+
+    // ===== REST =====
+
+    private int createRoom(String baseUrl, List<Integer> members) throws Exception {
+        String body = json.writeValueAsString(Map.of("name", "relay-delivery", "memberIds", members));
+        HttpResponse<String> res = http.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/chat/rooms/group"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build(), HttpResponse.BodyHandlers.ofString());
+        if (res.statusCode() != 200) throw new IllegalStateException("room create failed: " + res.body());
+        return json.readTree(res.body()).get("roomId").asInt();
+    }
+
+    /** 첫 페이지 히스토리 본문 (이어 붙인 문자열) */
+    private String history(String baseUrl, int roomId) {
+        try {
+            HttpResponse<String> res = http.send(HttpRequest.newBuilder(
+                    URI.create(baseUrl + "/api/chat/rooms/" + roomId + "/messages?size=20")).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            StringBuilder sb = new StringBuilder();
+            for (JsonNode m : json.readTree(res.body())) sb.append(m.path("content").asText()).append('\n');
+            return sb.toString();
+        } catch (Exception e) {
+            return "";
+        }
+    }
+
+    private void leave(String baseUrl, int roomId, int userId) throws Exception {
+        HttpResponse<String> res = http.send(HttpRequest.newBuilder(
+                URI.create(baseUrl + "/api/chat/rooms/" + roomId + "/leave?me=" + userId)).DELETE().build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (res.statusCode() != 200) throw new IllegalStateException("leave failed: " + res.body());
+    }
+
+    private String presence(String baseUrl, int userId) throws Exception {
+        HttpResponse<String> res = http.send(HttpRequest.newBuilder(
+                URI.create(baseUrl + "/api/chat/presence?ids=" + userId)).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        return json.readTree(res.body()).path(String.valueOf(userId)).asText();
+    }
+
+    /** 로그인 후 JSESSIONID 쿠키 (노드마다 세션이 따로라 노드별로 로그인) */
+    private String login(String baseUrl, int userId) throws Exception {
+        String body = json.writeValueAsString(Map.of("loginId", "lt" + userId, "password", LoadTestFixtures.PASSWORD));
+        HttpResponse<String> res = http.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/employees/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build(), HttpResponse.BodyHandlers.ofString());
+        if (res.statusCode() != 200) throw new IllegalStateException("login failed: " + res.body());
+        return res.headers().allValues("Set-Cookie").stream()
+                .filter(c -> c.startsWith("JSESSIONID="))
+                .map(c -> c.split(";", 2)[0])
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("no session cookie"));
+    }
+
+    // ===== STOMP =====
+
+    private Client connect(WebSocketStompClient stomp, String baseUrl, int userId, int roomId, boolean viewRoom) throws Exception {
+        WebSocketHttpHeaders headers = new WebSocketHttpHeaders();
+        headers.add("Cookie", login(baseUrl, userId));
+        StompSession session = stomp.connectAsync(baseUrl + "/ws-chat", headers, new StompSessionHandlerAdapter() {})
+                .get(30, TimeUnit.SECONDS);
+        Client c = new Client(session);
+        if (viewRoom) session.subscribe("/topic/rooms/" + roomId, c.collector(c.roomFrames));
+        session.subscribe("/topic/users/" + userId + "/alerts", c.collector(c.alerts));
+        return c;
+    }
+
+    private boolean await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (condition.getAsBoolean()) return true;
+            Thread.sleep(100);
+        }
+        return condition.getAsBoolean();
+    }
+
+    private void check(String name, boolean passed) {
+        checks.put(name, passed);
+        log((passed ? "PASS " : "FAIL ") + name);
+    }
+
+    private final class Client {
+        final StompSession session;
+        final ConcurrentLinkedQueue<JsonNode> roomFrames = new ConcurrentLinkedQueue<>();
+        final ConcurrentLinkedQueue<JsonNode> alerts = new ConcurrentLinkedQueue<>();
+
+        Client(StompSession session) {
+            this.session = session;
+        }
+
+        void send(int roomId, String content) throws Exception {
+            StompHeaders h = new StompHeaders();
+            h.setDestination("/app/rooms/" + roomId + "/send");
+            h.setContentType(MimeTypeUtils.APPLICATION_JSON);
+            session.send(h, json.writeValueAsBytes(Map.of("content", content)));
+        }
+
+        JsonNode roomFrame(String content) {
+            return roomFrames.stream().filter(n -> content.equals(n.path("content").asText())).findFirst().orElse(null);
+        }
+
+        JsonNode alert(Predicate<JsonNode> match) {
+            return alerts.stream().filter(match).findFirst().orElse(null);
+        }
+
+        StompFrameHandler collector(ConcurrentLinkedQueue<JsonNode> into) {
+            return new StompFrameHandler() {
+                @Override
+                public Type getPayloadType(StompHeaders headers) {
+                    return byte[].class;
+                }
+
+                @Override
+                public void handleFrame(StompHeaders headers, Object payload) {
+                    try {
+                        into.add(json.readTree((byte[]) payload));
+                    } catch (Exception ignore) {
+                        // JSON 이 아닌 프레임은 무시
+                    }
+                }
+            };
+        }
+    }
+
+    private static void log(String s) {
+        System.out.println("[chat-relay] " + s);
+    }
+}
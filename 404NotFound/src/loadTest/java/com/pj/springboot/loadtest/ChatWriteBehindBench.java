@@ -0,0 +1,151 @@
+package com.pj.springboot.loadtest;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import com.pj.springboot.chat.ChatMessage;
+import com.pj.springboot.chat.repository.ChatMessageRepositoryImpl;
+
+/**
+ * 채팅 메시지 저장 처리량 벤치마크: 동기 저장(메시지마다 INSERT + 커밋) vs write-behind 배치.
+ *
+ * 연결마다 chat_message 와 같은 구조의 TEMPORARY 테이블(이름도 chat_message)을 만들어
+ * 실제 테이블을 가린 채 ChatMessageRepositoryImpl.insertBatch 를 그대로 호출한다.
+ * → 실제 데이터는 건드리지 않고, 연결을 닫으면 테이블도 사라짐.
+ *
+ * - sync: lt.threads 개 연결이 각자 1건씩 INSERT (autocommit) — 기존 msgRepo.save 경로
+ * - batch-N: 연결 1개(write-behind flusher 와 같음)가 N건씩 multi-row INSERT
+ *   (lt.jdbcUrl 에 rewriteBatchedStatements=true 필요)
+ */
+public final class ChatWriteBehindBench {
+
+    private final LoadTestConfig cfg = LoadTestConfig.fromSystemProperties();
+    private final int messages = Integer.parseInt(LoadTestConfig.str("lt.messages", "20000"));
+    private final int threads = Integer.parseInt(LoadTestConfig.str("lt.threads", "16"));
+    private final int payloadBytes = Integer.parseInt(LoadTestConfig.str("lt.payloadBytes", "80"));
+    private final List<Integer> batchSizes = LoadTestConfig.ints("lt.batchSizes", "10,50,200,500");
+
+    public static void main(String[] args) throws Exception {
+        new ChatWriteBehindBench().run();
+        System.exit(0);
+    }
+
+    private void run() throws Exception {
+        log("messages " + messages + ", sync threads " + threads + ", batch sizes " + batchSizes);
+
+        Map<String, Object> runs = new LinkedHashMap<>();
+        runs.put("sync", sync());
+        for (int size : batchSizes) {
+            runs.put("batch-" + size, batched(size));
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("startedAt", LocalDateTime.now().toString());
+        result.put("messages", messages);
+        result.put("payloadBytes", payloadBytes);
+        result.put("runs", runs);
+        File out = LoadTestOutput.write(cfg.outputDir(), "chat-write-behind", result);
+        log("result " + out.getAbsolutePath());
+    }
+
+    /** 동기 저장: 스레드마다 연결 하나, 메시지마다 커밋 */
+    private Map<String, Object> sync() throws Exception {
+        LatencyHistogram latency = new LatencyHistogram();
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        long t0 = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                try (Connection con = openShadowed()) {
+                    ChatMessageRepositoryImpl repo = repo(con);
+                    int i;
+                    while ((i = next.incrementAndGet()) <= messages) {
+                        long s = System.nanoTime();
+                        repo.insertBatch(List.of(message(i)));
+                        latency.recordNanos(System.nanoTime() - s);
+                    }
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }, pool));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        double seconds = (System.nanoTime() - t0) / 1e9;
+        pool.shutdown();
+        return summary(seconds, messages, latency, "perInsertMs");
+    }
+
+    /** write-behind: 연결 하나가 size 건씩 묶어서 저장 */
+    private Map<String, Object> batched(int size) throws Exception {
+        LatencyHistogram latency = new LatencyHistogram();
+        try (Connection con = openShadowed()) {
+            ChatMessageRepositoryImpl repo = repo(con);
+            List<ChatMessage> batch = new ArrayList<>(size);
+            long t0 = System.nanoTime();
+            for (int i = 1; i <= messages; i++) {
+                batch.add(message(i));
+                if (batch.size() == size || i == messages) {
+                    long s = System.nanoTime();
+                    repo.insertBatch(batch);
+                    latency.recordNanos(System.nanoTime() - s);
+                    batch.clear();
+                }
+            }
+            return summary((System.nanoTime() - t0) / 1e9, messages, latency, "perBatchMs");
+        }
+    }
+
+    // ===== 내부 구현 =====
+
+    /** chat_message 를 가리는 임시 테이블을 가진 연결 */
+    private Connection openShadowed() throws Exception {
+        Connection con = DriverManager.getConnection(cfg.jdbcUrl(), cfg.dbUser(), cfg.dbPassword());
+        try (Statement st = con.createStatement()) {
+            st.execute("create temporary table chat_message like chat_message");
+        }
+        con.setAutoCommit(true);
+        return con;
+    }
+
+    private static ChatMessageRepositoryImpl repo(Connection con) {
+        return new ChatMessageRepositoryImpl(new JdbcTemplate(new SingleConnectionDataSource(con, true)));
+    }
+
+    private ChatMessage message(int id) {
+        ChatMessage m = new ChatMessage();
+        m.setId(id);
+        m.setRoomId(1 + id % 100);
+        m.setSenderId(1 + id % 1000);
+        m.setContent("x".repeat(payloadBytes));
+        m.setTime(LocalDateTime.now());
+        return m;
+    }
+
+    private static Map<String, Object> summary(double seconds, int rows, LatencyHistogram latency, String latencyKey) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("seconds", seconds);
+        m.put("rowsPerSec", rows / seconds);
+        m.put(latencyKey, latency.summary());
+        log(String.format("%.0f rows/s, %s %s", rows / seconds, latencyKey, latency.summary()));
+        return m;
+    }
+
+    private static void log(String s) {
+        System.out.println("[chat-write-behind] " + s);
+    }
+}
@@ -0,0 +1,68 @@
+package com.pj.springboot.loadtest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 고정 크기 지연 시간 히스토그램 (마이크로초 단위).
+ *  - 1ms 미만은 1µs 간격, 그 이상은 1% 간격 로그 버킷 → 샘플 수와 무관하게 메모리 일정
+ *  - 여러 스레드에서 lock 없이 기록
+ */
+final class LatencyHistogram {
+
+    private static final int LINEAR = 1000;                 // 0 ~ 999µs
+    private static final double GROWTH = Math.log(1.01);    // 1% 해상도
+    private static final int BUCKETS = LINEAR + 1200;       // ~ 1.5분 까지
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    void recordNanos(long nanos) {
+        long micros = Math.max(0, nanos / 1_000);
+        counts.incrementAndGet(indexOf(micros));
+        total.incrementAndGet();
+        max.accumulateAndGet(micros, Math::max);
+    }
+
+    long count() {
+        return total.get();
+    }
+
+    /** p(0~1) 분위수, 밀리초 */
+    double percentileMillis(double p) {
+        long n = total.get();
+        if (n == 0) return 0;
+        long rank = (long) Math.ceil(p * n);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(upperMicros(i), max.get()) / 1_000.0;
+        }
+        return max.get() / 1_000.0;
+    }
+
+    Map<String, Object> summary() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("count", count());
+        m.put("p50", percentileMillis(0.50));
+        m.put("p90", percentileMillis(0.90));
+        m.put("p99", percentileMillis(0.99));
+        m.put("p999", percentileMillis(0.999));
+        m.put("max", max.get() / 1_000.0);
+        return m;
+    }
+
+    private static int indexOf(long micros) {
+        if (micros < LINEAR) return (int) micros;
+        int i = LINEAR + (int) (Math.log((double) micros / LINEAR) / GROWTH);
+        return Math.min(i, BUCKETS - 1);
+    }
+
+    private static long upperMicros(int index) {
+        if (index < LINEAR) return index;
+        return (long) Math.ceil(LINEAR * Math.exp((index - LINEAR + 1) * GROWTH));
+    }
+}
@@ -0,0 +1,82 @@
+package com.pj.springboot.loadtest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 부하 테스트 설정 (-Dlt.* 시스템 프로퍼티).
+ * 같은 설정이면 같은 사용자/방 구성이 만들어지므로 실행 간 결과 비교 가능.
+ */
+record LoadTestConfig(
+        String baseUrl,
+        String jdbcUrl,
+        String dbUser,
+        String dbPassword,
+        int userIdBase,
+        int clients,
+        int roomSize,
+        double sendRatePerClient,
+        int payloadBytes,
+        Duration warmup,
+        Duration duration,
+        int connectParallelism,
+        String outputDir,
+        String baseline,
+        double regressionThreshold
+) {
+
+    static LoadTestConfig fromSystemProperties() {
+        return new LoadTestConfig(
+                str("lt.baseUrl", "http://localhost:8081"),
+                str("lt.jdbcUrl", "jdbc:mysql://localhost:3306/404notfound?serverTimezone=Asia/Seoul&characterEncoding=UTF-8&useSSL=false&allowPublicKeyRetrieval=true&rewriteBatchedStatements=true"),
+                str("lt.dbUser", "404notfound"),
+                str("lt.dbPassword", "1234"),
+                Integer.parseInt(str("lt.userIdBase", "90000000")),
+                Integer.parseInt(str("lt.clients", "500")),
+                Integer.parseInt(str("lt.roomSize", "10")),
+                Double.parseDouble(str("lt.sendRatePerClient", "0.5")),
+                Integer.parseInt(str("lt.payloadBytes", "80")),
+                Duration.parse(str("lt.warmup", "PT15S")),
+                Duration.parse(str("lt.duration", "PT60S")),
+                Integer.parseInt(str("lt.connectParallelism", "32")),
+                str("lt.outputDir", "build/loadtest"),
+                str("lt.baseline", ""),
+                Double.parseDouble(str("lt.regressionThreshold", "0.2"))
+        );
+    }
+
+    int rooms() {
+        return (clients + roomSize - 1) / roomSize;
+    }
+
+    /** 결과 파일에 남길 설정 (비밀번호 제외) */
+    Map<String, Object> describe() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("baseUrl", baseUrl);
+        m.put("clients", clients);
+        m.put("roomSize", roomSize);
+        m.put("rooms", rooms());
+        m.put("sendRatePerClient", sendRatePerClient);
+        m.put("payloadBytes", payloadBytes);
+        m.put("warmup", warmup.toString());
+        m.put("duration", duration.toString());
+        return m;
+    }
+
+    /** 쉼표로 구분한 양의 정수 목록 (예: lt.batchSizes=10,50,200) */
+    static List<Integer> ints(String key, String def) {
+        List<Integer> out = new ArrayList<>();
+        for (String s : str(key, def).split("\\s*,\\s*")) {
+            if (!s.isEmpty()) out.add(Math.max(1, Integer.parseInt(s)));
+        }
+        return out;
+    }
+
+    static String str(String key, String def) {
+        String v = System.getProperty(key);
+        return (v == null || v.isBlank()) ? def : v.trim();
+    }
+}
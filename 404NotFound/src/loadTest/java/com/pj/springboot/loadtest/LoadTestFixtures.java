@@ -0,0 +1,88 @@
+package com.pj.springboot.loadtest;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * 부하 테스트용 DB 준비 / 정리.
+ *  - 사용자: [userIdBase, userIdBase + count) 구간을 INSERT IGNORE (재실행 가능)
+ *  - 정리: 테스트 방의 메시지/원문/아카이브 세그먼트/멤버/방 + 구간 사용자의 근태 행/사원 삭제
+ *    (서버가 켜져 있는 동안 근태 자동 등록이 돌았으면 그 "결근" 행도 같이 지움)
+ */
+final class LoadTestFixtures {
+
+    static final String PASSWORD = "loadtest!";
+
+    private final LoadTestConfig cfg;
+
+    LoadTestFixtures(LoadTestConfig cfg) {
+        this.cfg = cfg;
+    }
+
+    /** 테스트 사용자 준비 (비밀번호 해시는 1회만 계산해 재사용) */
+    void seedUsers(int userIdBase, int count) throws Exception {
+        String hash = new BCryptPasswordEncoder(4).encode(PASSWORD);
+        String sql = """
+                insert ignore into employees
+                  (employee_id, employee_loginid, employee_name, employee_gender, employee_email,
+                   employee_pw, employee_create_date, employee_role, employee_department)
+                values (?, ?, ?, 'M', ?, ?, now(), 'USER', 'LOADTEST')
+                """;
+        try (Connection con = open();
+             PreparedStatement ps = con.prepareStatement(sql)) {
+            for (int i = 0; i < count; i++) {
+                int id = userIdBase + i;
+                ps.setInt(1, id);
+                ps.setString(2, "lt" + id);
+                ps.setString(3, "부하" + i);
+                ps.setString(4, "lt" + id + "@loadtest.local");
+                ps.setString(5, hash);
+                ps.addBatch();
+                if (i % 1000 == 999) ps.executeBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /** 테스트 방 / 사용자 정리 → 테이블별 삭제 건수 */
+    Map<String, Integer> cleanup(int userIdBase, int count, Collection<Integer> roomIds) throws Exception {
+        Map<String, Integer> deleted = new LinkedHashMap<>();
+        try (Connection con = open()) {
+            for (Integer roomId : roomIds) {
+                add(deleted, "chat_message_blob", update(con, "delete from chat_message_blob where blob_room_id = ?", roomId));
+                add(deleted, "chat_message_segment", update(con, "delete from chat_message_segment where segment_room_id = ?", roomId));
+                add(deleted, "chat_message", update(con, "delete from chat_message where message_room_id = ?", roomId));
+                add(deleted, "chat_users", update(con, "delete from chat_users where chat_room_id = ?", roomId));
+                add(deleted, "chat_room", update(con, "delete from chat_room where chat_id = ?", roomId));
+            }
+            int last = userIdBase + count - 1;
+            add(deleted, "chat_users", update(con, "delete from chat_users where chat_user_id between ? and ?", userIdBase, last));
+            add(deleted, "attendances", update(con, "delete from attendances where attendance_employee_id between ? and ?", userIdBase, last));
+            add(deleted, "employees", update(con, "delete from employees where employee_id between ? and ?", userIdBase, last));
+        }
+        return deleted;
+    }
+
+    // ===== 내부 구현 =====
+
+    private Connection open() throws Exception {
+        return DriverManager.getConnection(cfg.jdbcUrl(), cfg.dbUser(), cfg.dbPassword());
+    }
+
+    private static int update(Connection con, String sql, int... args) throws Exception {
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            for (int i = 0; i < args.length; i++) ps.setInt(i + 1, args[i]);
+            return ps.executeUpdate();
+        }
+    }
+
+    private static void add(Map<String, Integer> deleted, String table, int n) {
+        deleted.merge(table, n, Integer::sum);
+    }
+}
@@ -0,0 +1,26 @@
+package com.pj.springboot.loadtest;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/** 부하 테스트 / 벤치마크 결과 JSON 저장 ({name}-{시각}.json + {name}-latest.json) */
+final class LoadTestOutput {
+
+    static final ObjectMapper JSON = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private LoadTestOutput() {}
+
+    static File write(String outputDir, String name, Object result) throws Exception {
+        File dir = new File(outputDir);
+        dir.mkdirs();
+        String ts = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        File out = new File(dir, name + "-" + ts + ".json");
+        JSON.writeValue(out, result);
+        JSON.writeValue(new File(dir, name + "-latest.json"), result);
+        return out;
+    }
+}
@@ -1,6 +1,7 @@
 package com.pj.springboot.approval.controller;
 
 import java.nio.charset.StandardCharsets;
+import java.util.Map;
 
 import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
@@ -27,6 +28,7 @@ import org.springframework.web.multipart.MultipartFile;     // ★ NEW
 
 import com.pj.springboot.approval.dto.ApprovalDetailDto;
 import com.pj.springboot.approval.dto.ApprovalDto;
+import com.pj.springboot.approval.dto.ApprovalTodoDto;
 import com.pj.springboot.approval.dto.ApproveOrRejectReq;
 import com.pj.springboot.approval.dto.CreateApprovalReq;
 import com.pj.springboot.approval.dto.UpdateApprovalReq;
@@ -51,10 +53,17 @@ public class ApprovalController {
             @RequestParam(name = "page",   defaultValue = "0")  int page,     // ★ name 명시
             @RequestParam(name = "size",   defaultValue = "10") int size,     // ★ name 명시
             @RequestParam(name = "status", required = false)    String status,
-            @RequestParam(name = "q",      required = false)    String q      // ★ NEW
+            @RequestParam(name = "q",      required = false)    String q,     // ★ NEW
+            @RequestParam(name = "full",   defaultValue = "false") boolean full // 본문 전체 (기본: 미리보기)
     ) {
         Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "approvalDate"));
-        return service.listApprovals(status, q, pageable);                    // ★ 변경
+        return service.listApprovals(status, q, full, pageable);              // ★ 변경
+    }
+
+    // 목록 조회 / 문서번호 발급 지표
+    @GetMapping("/metrics")
+    public Map<String, Object> metrics() {
+        return Map.of("list", service.listStats(), "docId", service.docIdStats());
     }
 
     // 상세 (헤더 없어도 조회 가능)
@@ -139,7 +148,7 @@ public class ApprovalController {
 
     // 내 결재할 문서
     @GetMapping("/todo")
-    public Page<ApprovalDto> myTodo(@RequestHeader("X-Employee-Id") String eid,
+    public Page<ApprovalTodoDto> myTodo(@RequestHeader("X-Employee-Id") String eid,
                                     @RequestParam(name = "page", defaultValue = "0")  int page,  // ★ name 명시
                                     @RequestParam(name = "size", defaultValue = "10") int size   // ★ name 명시
     ) {
@@ -148,6 +157,16 @@ public class ApprovalController {
         return service.myTodo(me, pageable);
     }
 
+    // 내 결재 대기함 keyset (count 없음) - 폴링용
+    //   GET /api/approvals/todo/slice?beforeLineIdx=&size=20
+    @GetMapping("/todo/slice")
+    public ApprovalService.TodoSlice myTodoSlice(@RequestHeader("X-Employee-Id") String eid,
+                                                 @RequestParam(name = "beforeLineIdx", required = false) Integer beforeLineIdx,
+                                                 @RequestParam(name = "size", defaultValue = "20") int size
+    ) {
+        return service.myTodoSlice(Integer.parseInt(eid), beforeLineIdx, size);
+    }
+
     // 삭제
     @DeleteMapping("/{docId}")
     public void delete(@PathVariable("docId") String docId,
@@ -0,0 +1,28 @@
+package com.pj.springboot.approval.dto;
+
+import java.time.LocalDateTime;
+
+import com.pj.springboot.approval.ApprovalDoc;
+
+/**
+ * 결재 목록 한 줄 (JPQL 생성자 프로젝션, 엔티티/영속성 컨텍스트 거치지 않음)
+ * 본문은 DB 에서 잘라낸 미리보기만, contentLength 는 원문 글자 수
+ */
+public record ApprovalListRow(
+        String approvalDocId,
+        String approvalTitle,
+        String preview,
+        Integer contentLength,
+        LocalDateTime approvalDate,
+        ApprovalDoc.DocStatus approvalStatus,
+        Integer approvalAuthor,
+        ApprovalDoc.DocCategory approvalCategory
+) {
+
+    /** 목록 DTO 로 변환 (작성 시각이 threshold 이후면 NEW 배지) */
+    public ApprovalDto toDto(LocalDateTime threshold) {
+        boolean isNew = approvalDate != null && approvalDate.isAfter(threshold);
+        return new ApprovalDto(approvalDocId, approvalTitle, preview, approvalDate,
+                approvalStatus, approvalAuthor, approvalCategory, isNew);
+    }
+}
@@ -0,0 +1,39 @@
+package com.pj.springboot.approval.dto;
+
+import java.time.LocalDateTime;
+
+import com.pj.springboot.approval.ApprovalDoc;
+
+/**
+ * 결재 대기함(투두) 한 줄.
+ * approval_line ⋈ approval_doc 에서 목록 컬럼만 바로 뽑는 JPQL 생성자 프로젝션
+ * (본문 approval_content 제외, 엔티티/LAZY 로딩 없음)
+ */
+public record ApprovalTodoDto(
+        Integer approvalLineIdx,   // keyset 커서
+        String approvalDocId,
+        String approvalTitle,
+        LocalDateTime approvalDate,
+        ApprovalDoc.DocStatus approvalStatus,
+        Integer approvalAuthor,
+        ApprovalDoc.DocCategory approvalCategory,
+        Integer approvalSequence,
+        boolean isNew
+) {
+
+    /** JPQL select new 용 (isNew 는 서비스에서 채움) */
+    public ApprovalTodoDto(Integer approvalLineIdx, String approvalDocId, String approvalTitle,
+                           LocalDateTime approvalDate, ApprovalDoc.DocStatus approvalStatus,
+                           Integer approvalAuthor, ApprovalDoc.DocCategory approvalCategory,
+                           Integer approvalSequence) {
+        this(approvalLineIdx, approvalDocId, approvalTitle, approvalDate, approvalStatus,
+                approvalAuthor, approvalCategory, approvalSequence, false);
+    }
+
+    /** 작성 시각이 threshold 이후면 NEW 배지 */
+    public ApprovalTodoDto withNewBadge(LocalDateTime threshold) {
+        boolean fresh = approvalDate != null && approvalDate.isAfter(threshold);
+        return new ApprovalTodoDto(approvalLineIdx, approvalDocId, approvalTitle, approvalDate, approvalStatus,
+                approvalAuthor, approvalCategory, approvalSequence, fresh);
+    }
+}
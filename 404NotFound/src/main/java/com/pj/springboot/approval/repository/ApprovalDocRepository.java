@@ -1,5 +1,8 @@
 package com.pj.springboot.approval.repository;
 
+import java.util.Collection;
+import java.util.List;
+
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -8,8 +11,9 @@ import org.springframework.data.jpa.repository.Query;           // ★ NEW
 import org.springframework.data.repository.query.Param;      // ★ NEW
 
 import com.pj.springboot.approval.ApprovalDoc;
+import com.pj.springboot.approval.dto.ApprovalListRow;
 
-public interface ApprovalDocRepository extends JpaRepository<ApprovalDoc, String> {
+public interface ApprovalDocRepository extends JpaRepository<ApprovalDoc, String>, ApprovalDocRepositoryCustom {
 
     Page<ApprovalDoc> findByApprovalStatus(ApprovalDoc.DocStatus status, Pageable pageable);
 
@@ -46,4 +50,85 @@ public interface ApprovalDocRepository extends JpaRepository<ApprovalDoc, String
         @Param("q") String q,                                   // ★ NEW
         Pageable pageable                                       // ★ NEW
     );
+
+    /* ----------------------------------------------------------
+     * 목록 프로젝션: 목록 컬럼 + DB 에서 자른 본문 미리보기 (엔티티 로딩 없음)
+     *  - 조건/정렬/count 는 search 와 동일
+     * ---------------------------------------------------------- */
+    String LIST_ROW_SELECT = """
+            select new com.pj.springboot.approval.dto.ApprovalListRow(
+                   d.approvalDocId, d.approvalTitle,
+                   case when length(d.approvalContent) > :previewChars
+                        then concat(substring(d.approvalContent, 1, :previewChars), '…')
+                        else d.approvalContent end,
+                   length(d.approvalContent),
+                   d.approvalDate, d.approvalStatus, d.approvalAuthor, d.approvalCategory)
+              from ApprovalDoc d
+            """;
+
+    @Query(
+        value = LIST_ROW_SELECT + """
+             where (:status is null or d.approvalStatus = :status)
+               and (
+                    :q is null
+                    or lower(d.approvalTitle)  like lower(concat('%', :q, '%'))
+                    or lower(d.approvalContent) like lower(concat('%', :q, '%'))
+               )
+            """,
+        countQuery = """
+            select count(d)
+              from ApprovalDoc d
+             where (:status is null or d.approvalStatus = :status)
+               and (
+                    :q is null
+                    or lower(d.approvalTitle)  like lower(concat('%', :q, '%'))
+                    or lower(d.approvalContent) like lower(concat('%', :q, '%'))
+               )
+            """
+    )
+    Page<ApprovalListRow> searchList(
+        @Param("status") ApprovalDoc.DocStatus status,
+        @Param("q") String q,
+        @Param("previewChars") int previewChars,
+        Pageable pageable
+    );
+
+    // FULLTEXT 검색으로 얻은 id 들의 목록 행 (순서는 호출 측에서 맞춤)
+    @Query(LIST_ROW_SELECT + " where d.approvalDocId in :ids")
+    List<ApprovalListRow> findListRowsByIds(
+        @Param("ids") Collection<String> ids,
+        @Param("previewChars") int previewChars
+    );
+
+    /* ----------------------------------------------------------
+     * FULLTEXT(ngram) 검색 - 풀 스캔 없이 역색인 사용
+     *  - ft_approval_title(제목), ft_approval_text(제목+내용) 인덱스 필요 (404NotFound.sql)
+     *  - q 는 boolean mode 식 (예: +"회의실" +"예약"), 서비스에서 만들어 전달
+     *  - 정렬: 제목 일치 가중 관련도 → 작성일 최신순 (Pageable 정렬은 쓰지 않음)
+     *  - 인덱스는 InnoDB 가 INSERT/UPDATE/DELETE 와 같은 트랜잭션으로 갱신
+     *  - 문서 id 만 반환 → 목록 행은 findListRowsByIds / findAllById 로
+     * ---------------------------------------------------------- */
+    @Query(
+        value = """
+            select d.approval_doc_id
+              from approval_doc d
+             where match(d.approval_title, d.approval_content) against (:q in boolean mode)
+               and (:status is null or d.approval_status = :status)
+             order by match(d.approval_title) against (:q in boolean mode) * 3
+                    + match(d.approval_title, d.approval_content) against (:q in boolean mode) desc,
+                      d.approval_date desc
+            """,
+        countQuery = """
+            select count(*)
+              from approval_doc d
+             where match(d.approval_title, d.approval_content) against (:q in boolean mode)
+               and (:status is null or d.approval_status = :status)
+            """,
+        nativeQuery = true
+    )
+    Page<String> fullTextSearchIds(
+        @Param("status") String status,
+        @Param("q") String booleanQuery,
+        Pageable pageable
+    );
 }
@@ -0,0 +1,12 @@
+package com.pj.springboot.approval.repository;
+
+/** ApprovalDocRepository 커스텀 프래그먼트 (문서번호 시퀀스, JDBC) */
+public interface ApprovalDocRepositoryCustom {
+
+    /**
+     * year 문서번호를 size 개 예약한다 (approval_doc_seq 행 잠금 → 여러 서버가 동시에 호출해도 겹치지 않음).
+     * 호출한 트랜잭션이 커밋되어야 예약이 확정되므로 독립 트랜잭션에서 호출할 것.
+     * @return 예약 구간 시작 번호 [start, start + size)
+     */
+    long reserveDocIdBlock(int year, int size);
+}
@@ -0,0 +1,31 @@
+package com.pj.springboot.approval.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import lombok.RequiredArgsConstructor;
+
+/** ApprovalDocRepositoryCustom 구현 (Spring Data가 Impl 접미사로 자동 연결) */
+@RequiredArgsConstructor
+public class ApprovalDocRepositoryImpl implements ApprovalDocRepositoryCustom {
+
+    // 한 문장으로 예약: 연도 첫 예약이면 1번부터, 있으면 그 행에 바로 배타 잠금을 잡고 전진
+    // (INSERT IGNORE → SELECT FOR UPDATE 는 중복 행의 공유 잠금을 배타 잠금으로 올리다 두 서버가 서로 기다리는 교착)
+    private static final String RESERVE_SEQ_SQL = """
+            insert into approval_doc_seq (seq_year, seq_next) values (?, 1 + ?)
+            on duplicate key update seq_next = seq_next + ?
+            """;
+
+    // 같은 트랜잭션이 방금 바꾼 행 (잠금은 커밋까지 유지)
+    private static final String NEXT_SEQ_SQL = """
+            select seq_next from approval_doc_seq where seq_year = ?
+            """;
+
+    private final JdbcTemplate jdbc;
+
+    @Override
+    public long reserveDocIdBlock(int year, int size) {
+        jdbc.update(RESERVE_SEQ_SQL, year, size, size);
+        Long end = jdbc.queryForObject(NEXT_SEQ_SQL, Long.class, year);
+        return end - size;
+    }
+}
@@ -3,6 +3,7 @@ package com.pj.springboot.approval.repository;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -11,6 +12,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import com.pj.springboot.approval.ApprovalLine;
+import com.pj.springboot.approval.dto.ApprovalTodoDto;
 
 public interface ApprovalLineRepository extends JpaRepository<ApprovalLine, Integer> {
 
@@ -22,8 +24,46 @@ public interface ApprovalLineRepository extends JpaRepository<ApprovalLine, Inte
     boolean existsByDocApprovalDocIdAndApprovalLineStatus(
             String docId, ApprovalLine.LineStatus status);
 
-    Page<ApprovalLine> findByApprovalIdAndApprovalLineStatus(
-            Integer approvalId, ApprovalLine.LineStatus status, Pageable pageable);
+    /* ----------------------------------------------------------
+     * 결재 대기함 프로젝션: approval_line ⋈ approval_doc 한 번에, 목록 컬럼만
+     *  - idx_line_todo (approval_id, approval_line_status, approval_line_idx) 사용
+     *  - count 는 approval_line 만 (조인 없음)
+     * ---------------------------------------------------------- */
+    String TODO_SELECT = """
+            select new com.pj.springboot.approval.dto.ApprovalTodoDto(
+                   l.approvalLineIdx, d.approvalDocId, d.approvalTitle, d.approvalDate,
+                   d.approvalStatus, d.approvalAuthor, d.approvalCategory, l.approvalSequence)
+              from ApprovalLine l
+              join l.doc d
+             where l.approvalId = :me
+               and l.approvalLineStatus = :status
+            """;
+
+    @Query(
+        value = TODO_SELECT + " order by l.approvalLineIdx desc",
+        countQuery = """
+            select count(l)
+              from ApprovalLine l
+             where l.approvalId = :me
+               and l.approvalLineStatus = :status
+            """
+    )
+    Page<ApprovalTodoDto> findTodo(@Param("me") Integer me,
+                                   @Param("status") ApprovalLine.LineStatus status,
+                                   Pageable pageable);
+
+    // keyset: 첫 페이지 (count 없음)
+    @Query(TODO_SELECT + " order by l.approvalLineIdx desc")
+    List<ApprovalTodoDto> findTodoFirst(@Param("me") Integer me,
+                                        @Param("status") ApprovalLine.LineStatus status,
+                                        Limit limit);
+
+    // keyset: beforeLineIdx 이전 (count 없음)
+    @Query(TODO_SELECT + " and l.approvalLineIdx < :beforeLineIdx order by l.approvalLineIdx desc")
+    List<ApprovalTodoDto> findTodoBefore(@Param("me") Integer me,
+                                         @Param("status") ApprovalLine.LineStatus status,
+                                         @Param("beforeLineIdx") Integer beforeLineIdx,
+                                         Limit limit);
 
     // ✅ 문서 하위 라인 일괄 삭제
     @Modifying(clearAutomatically = true, flushAutomatically = true)
@@ -0,0 +1,130 @@
+package com.pj.springboot.approval.service;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.pj.springboot.approval.repository.ApprovalDocRepository;
+
+/**
+ * 결재 문서번호 발급 (AP-연도-0000001).
+ *  - approval_doc_seq 에서 연도별 번호를 block-size 개씩 예약 (독립 트랜잭션으로 바로 커밋)
+ *  - 예약한 블록 안에서는 AtomicLong 증가만으로 발급 → 평소에는 lock / DB 접근 없음
+ *  - 블록을 다 쓰거나 연도가 바뀌면 한 스레드만 새 블록을 예약, 나머지는 잠깐 대기
+ *  - 재시작하면 쓰지 않은 블록 나머지는 건너뜀 (번호에 빈 곳은 생겨도 중복은 없음)
+ *  - 여러 서버가 동시에 예약하다 교착/잠금 대기 초과로 롤백되면 잠깐 쉬었다가 다시 예약 (reserve-retries 회)
+ *
+ * 블록 예약에 커넥션을 따로 잡으므로, 다른 트랜잭션 안에서 호출하지 말 것
+ * (커넥션 풀이 결재 생성 트랜잭션으로 가득 찬 상태에서 예약을 기다리면 교착).
+ */
+@Service
+public class ApprovalDocIdAllocator {
+
+    private final ApprovalDocRepository docRepo;
+    private final TransactionTemplate tx;
+    private final int blockSize;
+    private final int reserveRetries;
+
+    private final AtomicReference<Block> current = new AtomicReference<>();
+    private final Object refillLock = new Object();
+
+    private final LongAdder issued = new LongAdder();
+    private final LongAdder blocks = new LongAdder();
+    private final LongAdder reserveNanos = new LongAdder();
+    private final LongAdder refillWaits = new LongAdder();
+    private final LongAdder reserveRetried = new LongAdder();
+
+    public ApprovalDocIdAllocator(ApprovalDocRepository docRepo,
+                                  PlatformTransactionManager txManager,
+                                  @Value("${app.approval.doc-id.block-size:100}") int blockSize,
+                                  @Value("${app.approval.doc-id.reserve-retries:3}") int reserveRetries) {
+        this.docRepo = docRepo;
+        this.tx = new TransactionTemplate(txManager);
+        this.tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.blockSize = Math.max(1, blockSize);
+        this.reserveRetries = Math.max(0, reserveRetries);
+    }
+
+    /** 새 문서번호 */
+    public String next() {
+        while (true) {
+            int year = LocalDate.now().getYear();
+            Block b = current.get();
+            if (b != null && b.year() == year) {
+                long n = b.cursor().getAndIncrement();
+                if (n < b.end()) {
+                    issued.increment();
+                    return format(year, n);
+                }
+            }
+            refill(b, year);
+        }
+    }
+
+    // ===== 내부 구현 =====
+
+    /** seen 블록이 아직 현재 블록이면 새로 예약 (다른 스레드가 이미 바꿨으면 그대로 재시도) */
+    private void refill(Block seen, int year) {
+        synchronized (refillLock) {
+            if (current.get() != seen) {
+                refillWaits.increment();
+                return;
+            }
+            long t0 = System.nanoTime();
+            long start = reserve(year);
+            reserveNanos.add(System.nanoTime() - t0);
+            blocks.increment();
+            current.set(new Block(year, new AtomicLong(start), start + blockSize));
+        }
+    }
+
+    /** 블록 예약 (교착 희생 / 잠금 대기 초과는 짧게 쉬고 재시도, 횟수를 넘기면 그대로 던짐) */
+    private long reserve(int year) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return tx.execute(s -> docRepo.reserveDocIdBlock(year, blockSize));
+            } catch (PessimisticLockingFailureException e) {
+                if (attempt >= reserveRetries) throw e;
+                reserveRetried.increment();
+                try {
+                    Thread.sleep(5L * (attempt + 1) + (long) (Math.random() * 10));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static String format(int year, long n) {
+        return String.format("AP-%d-%07d", year, n);
+    }
+
+    /** 예약 구간 [cursor 시작, end) */
+    private record Block(int year, AtomicLong cursor, long end) {}
+
+    public Map<String, Object> stats() {
+        Block b = current.get();
+        long reserved = blocks.sum();
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("blockSize", blockSize);
+        m.put("issued", issued.sum());
+        m.put("blocksReserved", reserved);
+        m.put("avgReserveMillis", reserved == 0 ? 0 : reserveNanos.sum() / 1e6 / reserved);
+        m.put("refillWaits", refillWaits.sum());
+        m.put("reserveRetries", reserveRetried.sum());
+        m.put("currentYear", b == null ? null : b.year());
+        m.put("remainingInBlock", b == null ? 0 : Math.max(0, b.end() - b.cursor().get()));
+        return m;
+    }
+}
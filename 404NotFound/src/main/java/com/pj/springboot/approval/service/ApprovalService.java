@@ -5,15 +5,25 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile; // ★ NEW (기존 주석 유지)
 
 import com.pj.springboot.approval.ApprovalDoc;
@@ -23,13 +33,15 @@ import com.pj.springboot.approval.TimeoffRequest;
 import com.pj.springboot.approval.dto.ApprovalDetailDto;
 import com.pj.springboot.approval.dto.ApprovalDto;
 import com.pj.springboot.approval.dto.ApprovalLineDto;
+import com.pj.springboot.approval.dto.ApprovalListRow;
+import com.pj.springboot.approval.dto.ApprovalTodoDto;
 import com.pj.springboot.approval.dto.CreateApprovalReq;
 import com.pj.springboot.approval.repository.ApprovalDocRepository;
 import com.pj.springboot.approval.repository.ApprovalLineRepository;
 import com.pj.springboot.approval.repository.TimeoffRequestRepository;
 
-// ✅ 역할(Role) 확인을 위해 사원 레포지토리 사용
-import com.pj.springboot.auth.repository.EmployeeRepository;
+// ✅ 역할(Role) 확인은 역할 캐시 사용
+import com.pj.springboot.auth.service.EmployeeRoleCache;
 import com.pj.springboot.calendars.service.EventSyncService;
 import com.pj.springboot.calendars.service.EventSyncService.ApprovalSnapshot;
 
@@ -42,8 +54,19 @@ public class ApprovalService {
     private final TimeoffRequestRepository timeoffRepo;
     private final FileUpload fileUpload;
 
-    // ✅ 역할 기반 권한을 위해 추가
-    private final EmployeeRepository employeeRepo;
+    // ✅ 역할 기반 권한 (사번 → 역할 캐시)
+    private final EmployeeRoleCache roleCache;
+
+    // 목록 본문 미리보기 길이 (글자)
+    private final int listPreviewChars;
+    private final ListStats listStats = new ListStats();
+
+    // MySQL ngram_token_size (기본 2)
+    private static final int FULLTEXT_MIN_TOKEN = 2;
+
+    // 문서번호 발급 (연도별 시퀀스 블록) + 생성 트랜잭션
+    private final ApprovalDocIdAllocator docIdAllocator;
+    private final TransactionTemplate tx;
 
     // NEW 배지 유지 시간
     private final Duration newBadgeDuration;
@@ -58,30 +81,66 @@ public class ApprovalService {
                            ApprovalLineRepository lineRepo,
                            TimeoffRequestRepository timeoffRepo,
                            FileUpload fileUpload,
-                           EmployeeRepository employeeRepo,
+                           EmployeeRoleCache roleCache,
+                           ApprovalDocIdAllocator docIdAllocator,
+                           PlatformTransactionManager txManager,
                            @Value("${app.new-badge-duration:PT24H}") Duration newBadgeDuration,
+                           @Value("${app.approval.list-preview-chars:100}") int listPreviewChars,
                            EventSyncService eventSyncService // ★ NEW
     ) {
         this.docRepo = docRepo;
         this.lineRepo = lineRepo;
         this.timeoffRepo = timeoffRepo;
         this.fileUpload = fileUpload;
-        this.employeeRepo = employeeRepo;
+        this.roleCache = roleCache;
+        this.docIdAllocator = docIdAllocator;
+        this.tx = new TransactionTemplate(txManager);
         this.newBadgeDuration = newBadgeDuration;
+        this.listPreviewChars = Math.max(1, listPreviewChars);
         this.eventSyncService = eventSyncService;                              // ★ NEW
     }
 
-    /* 목록 */
+    /* 목록
+     * - 기본: 목록 컬럼 + 본문 미리보기 프로젝션 (엔티티 로딩 없음, approvalContent 에 미리보기)
+     * - full=true: 기존처럼 엔티티를 읽어 본문 전체
+     * - 검색어가 있으면 FULLTEXT(ngram) 관련도 순, 2글자 미만 검색어만 기존 like 검색
+     */
     @Transactional(readOnly = true)
     // ★ 변경: 검색어 q 추가
-    public Page<ApprovalDto> listApprovals(String status, String q, Pageable pageable) {
+    public Page<ApprovalDto> listApprovals(String status, String q, boolean full, Pageable pageable) {
         ApprovalDoc.DocStatus parsed = parseStatus(status);
         String keyword = (q == null || q.isBlank()) ? null : q.trim();
+        String ftQuery = toFullTextQuery(keyword);
+        LocalDateTime threshold = LocalDateTime.now().minus(newBadgeDuration);
 
-        // ★ 변경: 레포지토리의 search 사용 (status + 제목/내용 like)
-        Page<ApprovalDoc> page = docRepo.search(parsed, keyword, pageable);
+        if (!full) {
+            Page<ApprovalListRow> rows;
+            if (ftQuery != null) {
+                Page<String> ids = fullTextIds(parsed, ftQuery, pageable);
+                List<ApprovalListRow> found = ids.isEmpty() ? List.of()
+                        : docRepo.findListRowsByIds(ids.getContent(), listPreviewChars);
+                rows = new PageImpl<>(inOrder(ids.getContent(), found, ApprovalListRow::approvalDocId),
+                        pageable, ids.getTotalElements());
+            } else {
+                rows = docRepo.searchList(parsed, keyword, listPreviewChars, pageable);
+            }
+            for (ApprovalListRow r : rows.getContent()) {
+                listStats.previewRows.increment();
+                listStats.previewChars.add(r.preview() == null ? 0 : r.preview().length());
+                listStats.fullChars.add(r.contentLength() == null ? 0 : r.contentLength());
+            }
+            return rows.map(r -> r.toDto(threshold));
+        }
 
-        LocalDateTime threshold = LocalDateTime.now().minus(newBadgeDuration);
+        Page<ApprovalDoc> page;
+        if (ftQuery != null) {
+            Page<String> ids = fullTextIds(parsed, ftQuery, pageable);
+            page = new PageImpl<>(inOrder(ids.getContent(), docRepo.findAllById(ids.getContent()),
+                    ApprovalDoc::getApprovalDocId), pageable, ids.getTotalElements());
+        } else {
+            page = docRepo.search(parsed, keyword, pageable);
+        }
+        listStats.fullRows.add(page.getNumberOfElements());
 
         List<ApprovalDto> content = new ArrayList<>();
         for (ApprovalDoc d : page.getContent()) {
@@ -168,10 +227,19 @@ public class ApprovalService {
         return dto;
     }
 
-    /* 생성 */
+    /* 생성
+     * - 문서번호는 트랜잭션 밖에서 발급 (번호 블록 예약이 커넥션을 따로 잡으므로)
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public String create(com.pj.springboot.approval.dto.CreateApprovalReq req, int author, MultipartFile file) {
-        String docId = generateDocId();
+        String docId = docIdAllocator.next();
+        return tx.execute(s -> insertDoc(docId, req, author, file));
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public String create(com.pj.springboot.approval.dto.CreateApprovalReq req, int author) { return create(req, author, null); }
 
+    private String insertDoc(String docId, com.pj.springboot.approval.dto.CreateApprovalReq req, int author, MultipartFile file) {
         ApprovalDoc d = new ApprovalDoc();
         d.setApprovalDocId(docId);
         d.setApprovalTitle(nz(req.getTitle()));
@@ -233,8 +301,6 @@ public class ApprovalService {
         return docId;
     }
 
-    public String create(com.pj.springboot.approval.dto.CreateApprovalReq req, int author) { return create(req, author, null); }
-
     /* ==============================
      * 수정 (오버로드 추가)
      * ============================== */
@@ -354,34 +420,37 @@ public class ApprovalService {
         );
     }
 
-    /* 내 결재할 문서 (본인 차례) */
+    /* 내 결재할 문서 (본인 차례) - 조인 프로젝션 1회 + count 1회 */
     @Transactional(readOnly = true)
-    public Page<ApprovalDto> myTodo(int me, Pageable pageable) {
-        Page<ApprovalLine> lines = lineRepo.findByApprovalIdAndApprovalLineStatus(
-                me, ApprovalLine.LineStatus.PENDING, pageable);
-
+    public Page<ApprovalTodoDto> myTodo(int me, Pageable pageable) {
         LocalDateTime threshold = LocalDateTime.now().minus(newBadgeDuration);
+        return lineRepo.findTodo(me, ApprovalLine.LineStatus.PENDING, pageable)
+                .map(r -> r.withNewBadge(threshold));
+    }
 
-        List<ApprovalDto> dtos = new ArrayList<>();
-        for (ApprovalLine l : lines.getContent()) {
-            ApprovalDoc d = l.getDoc();
-            if (d != null) {
-                boolean isNew = d.getApprovalDate() != null && d.getApprovalDate().isAfter(threshold);
-                dtos.add(new ApprovalDto(
-                        d.getApprovalDocId(),
-                        d.getApprovalTitle(),
-                        d.getApprovalContent(),
-                        d.getApprovalDate(),
-                        d.getApprovalStatus(),
-                        d.getApprovalAuthor(),
-                        d.getApprovalCategory(),
-                        isNew
-                ));
-            }
-        }
-        return new PageImpl<>(dtos, pageable, lines.getTotalElements());
+    /**
+     * 내 결재할 문서 keyset 페이지 (count 없음, 페이지당 인덱스 쿼리 1회)
+     *  - beforeLineIdx 가 없으면 첫 페이지, 다음 요청은 응답의 nextBeforeLineIdx 를 그대로 전달
+     *  - 한 건 더 읽어서 다음 페이지 존재 여부 판단
+     */
+    @Transactional(readOnly = true)
+    public TodoSlice myTodoSlice(int me, Integer beforeLineIdx, int size) {
+        int limit = Math.max(1, Math.min(size, 100));
+        List<ApprovalTodoDto> rows = (beforeLineIdx == null)
+                ? lineRepo.findTodoFirst(me, ApprovalLine.LineStatus.PENDING, Limit.of(limit + 1))
+                : lineRepo.findTodoBefore(me, ApprovalLine.LineStatus.PENDING, beforeLineIdx, Limit.of(limit + 1));
+
+        boolean hasMore = rows.size() > limit;
+        List<ApprovalTodoDto> page = hasMore ? rows.subList(0, limit) : rows;
+        LocalDateTime threshold = LocalDateTime.now().minus(newBadgeDuration);
+        List<ApprovalTodoDto> items = page.stream().map(r -> r.withNewBadge(threshold)).toList();
+        Integer next = hasMore ? items.get(items.size() - 1).approvalLineIdx() : null;
+        return new TodoSlice(items, next, hasMore);
     }
 
+    /** 결재 대기함 keyset 응답 */
+    public record TodoSlice(List<ApprovalTodoDto> items, Integer nextBeforeLineIdx, boolean hasMore) {}
+
     /* 삭제: (매니저) 또는 (작성자 & 미승인) */
     public void delete(String docId, Integer me) {
         ApprovalDoc d = docRepo.findById(docId)
@@ -461,15 +530,73 @@ public class ApprovalService {
     private boolean meEquals(Integer x, int me) { return x != null && x == me; }
 
     // ✅ 역할 기반 권한: role == "MANAGER" 면 매니저로 간주 (대소문자 무시)
+    // 역할 캐시 조회 (미스일 때만 role 컬럼 조회)
     private boolean isManager(Integer me) {
-        if (me == null) return false;
-        return employeeRepo.findById(me)
-                .map(emp -> "MANAGER".equalsIgnoreCase(String.valueOf(emp.getRole())))
-                .orElse(false);
+        return roleCache.isManager(me);
     }
 
     private String nz(String s) { return s == null ? "" : s; }
 
+    // FULLTEXT 관련도 순 id 페이지 (Pageable 정렬은 쓰지 않음)
+    private Page<String> fullTextIds(ApprovalDoc.DocStatus status, String ftQuery, Pageable pageable) {
+        return docRepo.fullTextSearchIds(status == null ? null : status.name(), ftQuery,
+                PageRequest.of(pageable.getPageNumber(), pageable.getPageSize()));
+    }
+
+    // in (...) 조회 결과를 ids 순서(관련도 순)로 정렬
+    private static <T> List<T> inOrder(List<String> ids, List<T> rows, Function<T, String> idOf) {
+        Map<String, T> byId = new HashMap<>();
+        for (T r : rows) byId.put(idOf.apply(r), r);
+        List<T> out = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            T r = byId.get(id);
+            if (r != null) out.add(r);
+        }
+        return out;
+    }
+
+    /* 목록 조회 지표: 미리보기 프로젝션으로 줄인 본문 글자 수 / 엔티티 로딩 횟수 */
+    public Map<String, Object> listStats() {
+        long full = listStats.fullChars.sum(), preview = listStats.previewChars.sum();
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("previewChars", listPreviewChars);
+        m.put("previewRows", listStats.previewRows.sum());
+        m.put("fullRows", listStats.fullRows.sum());
+        m.put("contentCharsFetched", preview);
+        m.put("contentCharsAvoided", full - preview);
+        m.put("entitiesAvoided", listStats.previewRows.sum());
+        return m;
+    }
+
+    /* 문서번호 발급 지표 (블록 예약 횟수 / 예약 지연) */
+    public Map<String, Object> docIdStats() {
+        return docIdAllocator.stats();
+    }
+
+    private static final class ListStats {
+        final LongAdder previewRows = new LongAdder();
+        final LongAdder fullRows = new LongAdder();
+        final LongAdder previewChars = new LongAdder();
+        final LongAdder fullChars = new LongAdder();
+    }
+
+    /**
+     * 검색어 → FULLTEXT boolean mode 식. 공백으로 나눈 단어마다 +"단어" (모두 포함, 단어 안은 연속 일치)
+     *  - boolean 연산자 문자는 제거
+     *  - ngram 토큰(2글자)보다 짧은 단어는 제외, 남는 단어가 없으면 null (like 검색으로)
+     */
+    private static String toFullTextQuery(String keyword) {
+        if (keyword == null) return null;
+        StringBuilder sb = new StringBuilder();
+        for (String word : keyword.split("\\s+")) {
+            String w = word.replaceAll("[+\\-<>()~*\"@]", "");
+            if (w.codePointCount(0, w.length()) < FULLTEXT_MIN_TOKEN) continue;
+            if (sb.length() > 0) sb.append(' ');
+            sb.append("+\"").append(w).append('"');
+        }
+        return sb.length() == 0 ? null : sb.toString();
+    }
+
     private ApprovalDoc.DocStatus parseStatus(String status) {
         if (status == null) return null;
         String s = status.trim();
@@ -478,12 +605,6 @@ public class ApprovalService {
         catch (IllegalArgumentException e) { return null; }
     }
 
-    private String generateDocId() {
-        String year = String.valueOf(LocalDate.now().getYear());
-        String tail = String.valueOf(System.currentTimeMillis()).substring(7);
-        return "AP-" + year + "-" + tail;
-    }
-
     private TimeoffRequest.Type safeTimeoffType(String t) {
         if (t == null) return TimeoffRequest.Type.ANNUAL;
         try { return TimeoffRequest.Type.valueOf(t.trim().toUpperCase()); }
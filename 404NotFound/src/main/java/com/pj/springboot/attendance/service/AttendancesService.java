@@ -32,7 +32,8 @@ public class AttendancesService {
 	EmployeeRepository employeeRepository;
 
 	// 오전 9시마다 서버가 켜져있으면 자동으로 오늘 근태 정보 사원별로 insert
-	@Scheduled(cron = "0 0 9 * * ?")
+	// app.attendance.auto-absent.cron 으로 켬 (기본 "-" = 꺼짐)
+	@Scheduled(cron = "${app.attendance.auto-absent.cron:-}")
 	public int insertTodayAttendances() {
 		// 추가되어있는 직원을 제외한 직원 근태 정보 추가
 		LocalDate today = LocalDate.now();
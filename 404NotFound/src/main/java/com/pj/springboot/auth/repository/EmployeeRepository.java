@@ -33,6 +33,10 @@ public interface EmployeeRepository extends JpaRepository<EmployeeEntity, Intege
 	Optional<EmployeeEntity> findByLoginIdAndEmail(String loginId, String email);
 	
 	Optional<EmployeeEntity> findByEmail(String email);
+
+	// 역할만 조회 (권한 확인용, 엔티티 로딩 없음)
+	@Query("SELECT e.role FROM EmployeeEntity e WHERE e.employeeId = :id")
+	Optional<String> findRoleById(@Param("id") int id);
 	
 	// 현준 추가
 	List<EmployeeEntity> findByNameLike(String employeeName);
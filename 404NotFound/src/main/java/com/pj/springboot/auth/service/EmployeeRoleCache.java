@@ -0,0 +1,76 @@
+package com.pj.springboot.auth.service;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.pj.springboot.auth.repository.EmployeeRepository;
+import com.pj.springboot.common.TxUtils;
+
+/**
+ * 사원 역할(role) 캐시 (결재 권한 확인용).
+ *  - 사번 → [만료 시각 | 역할 비트] 를 long 하나로 보관 → 조회 시 엔티티/객체 생성 없음
+ *  - 미스일 때만 role 컬럼 하나 조회 (없는 사번도 캐시)
+ *  - TTL + 최대 개수 제한, EmployeeService 에서 사원 정보가 바뀌면 커밋 후 무효화
+ */
+@Service
+public class EmployeeRoleCache {
+
+    // 역할 비트
+    private static final long EXISTS = 1L;
+    private static final long MANAGER = 1L << 1;
+    private static final int ROLE_BITS = 8;
+
+    private final EmployeeRepository repository;
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final long epoch = System.currentTimeMillis();
+
+    private final ConcurrentHashMap<Integer, Long> roles = new ConcurrentHashMap<>();
+
+    public EmployeeRoleCache(EmployeeRepository repository,
+                             @Value("${app.auth.role-cache.ttl:PT5M}") Duration ttl,
+                             @Value("${app.auth.role-cache.max-entries:10000}") int maxEntries) {
+        this.repository = repository;
+        this.ttlMillis = Math.max(0, ttl.toMillis());
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    /** MANAGER 역할 여부 (없는 사번이면 false) */
+    public boolean isManager(Integer employeeId) {
+        if (employeeId == null) return false;
+        return (bits(employeeId) & MANAGER) != 0;
+    }
+
+    /** 사원 정보 변경 시 (현재 트랜잭션 커밋 이후) */
+    public void invalidate(int employeeId) {
+        TxUtils.afterCommit(() -> roles.remove(employeeId));
+    }
+
+    // ===== 내부 구현 =====
+
+    private long bits(int employeeId) {
+        long now = System.currentTimeMillis() - epoch;
+        Long packed = roles.get(employeeId);
+        if (packed != null && (packed >>> ROLE_BITS) > now) {
+            return packed & ((1L << ROLE_BITS) - 1);
+        }
+
+        long bits = repository.findRoleById(employeeId)
+                .map(role -> EXISTS | ("MANAGER".equalsIgnoreCase(role) ? MANAGER : 0))
+                .orElse(0L);   // 없는 사번: 비트 없음
+        if (ttlMillis > 0) {
+            if (roles.size() >= maxEntries) evict(now);
+            roles.put(employeeId, ((now + ttlMillis) << ROLE_BITS) | bits);
+        }
+        return bits;
+    }
+
+    /** 만료된 항목 정리, 그래도 가득 차 있으면 비움 (역할 조회는 다시 채우면 되므로 단순하게) */
+    private void evict(long now) {
+        roles.values().removeIf(p -> (p >>> ROLE_BITS) <= now);
+        if (roles.size() >= maxEntries) roles.clear();
+    }
+}
@@ -28,6 +28,7 @@ public class EmployeeService {
 	private final EmployeeRepository repository;
 	private final PasswordEncoder passwordEncoder;
 	private final EmailAuthService emailAuthService;
+	private final EmployeeRoleCache roleCache;
 
 	@Transactional
 	public synchronized String generateEmployeeId() {
@@ -56,7 +57,7 @@ public class EmployeeService {
 				.department(dto.getDepartment()).job(dto.getJob()).gender(dto.getGender())
 				.createDate(LocalDateTime.now()).role(role).build();
 
-		return repository.save(emp);
+		return saved(repository.save(emp));
 	}
 
 	public EmployeeDTO login(LoginDTO dto) {
@@ -86,7 +87,7 @@ public class EmployeeService {
 
 	@Transactional
 	public EmployeeEntity save(EmployeeEntity user) {
-		return repository.save(user);
+		return saved(repository.save(user));
 	}
 
 	@Transactional
@@ -135,7 +136,7 @@ public class EmployeeService {
 		EmployeeEntity existing = findByKakaoId(user.getKakaoId());
 		if (existing != null)
 			return existing; // 이미 존재하면 반환
-		return repository.save(user);
+		return saved(repository.save(user));
 	}
 
 	@Transactional(readOnly = true)
@@ -148,7 +149,7 @@ public class EmployeeService {
 		EmployeeEntity existing = findByGoogleId(user.getGoogleId());
 		if (existing != null)
 			return existing; // 이미 존재하면 반환
-		return repository.save(user);
+		return saved(repository.save(user));
 	}
 
 	// 현준 추가
@@ -214,7 +215,13 @@ public class EmployeeService {
 		employee.setAddress(dto.getAddress());
 		employee.setPhone(dto.getPhone());
 
-		repository.save(employee);
+		saved(repository.save(employee));
+	}
+
+	// 사원 정보가 바뀌면 역할 캐시 무효화 (커밋 이후)
+	private EmployeeEntity saved(EmployeeEntity employee) {
+		roleCache.invalidate(employee.getEmployeeId());
+		return employee;
 	}
 
 	public EmployeeEntity getEmployeeEntityByLoginId(String loginId) {
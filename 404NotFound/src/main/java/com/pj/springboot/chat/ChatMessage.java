@@ -33,4 +33,8 @@ public class ChatMessage {
 
     @Column(name = "message_time", nullable = false, updatable = false, insertable = false)
     private LocalDateTime time;                   // DB DEFAULT CURRENT_TIMESTAMP 사용
+
+    // 큰 본문이면 원문 바이트 수 (content 는 미리보기, 원문은 chat_message_blob), 아니면 null
+    @Column(name = "message_full_size")
+    private Integer fullSize;
 }
@@ -3,9 +3,14 @@ package com.pj.springboot.chat.controller;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.pj.springboot.chat.ChatMessage;
 import com.pj.springboot.chat.ChatRoom;
-import com.pj.springboot.chat.repository.ChatRoomRepository;
 import com.pj.springboot.chat.repository.ChatUsersRepository;
+import com.pj.springboot.chat.repository.ChatMessageRepositoryCustom;
+import com.pj.springboot.chat.service.ChatContentStore;
+import com.pj.springboot.chat.service.ChatMembershipIndex;
+import com.pj.springboot.chat.service.ChatPresenceRegistry;
+import com.pj.springboot.chat.service.ChatSearchIndex;
 import com.pj.springboot.chat.service.ChatService;
+import com.pj.springboot.chat.service.ChatUnreadTracker;
 import com.pj.springboot.chat.service.DirectRoomService;
 import com.pj.springboot.chat.service.GroupRoomService;
 import com.pj.springboot.auth.repository.EmployeeRepository;   // 👈 직원 레포만 주입 (서비스 변경 없음)
@@ -30,8 +35,12 @@ public class ChatController {
     private final DirectRoomService directRoomService;
     private final GroupRoomService groupRoomService;
     private final ChatService chatService;
+    private final ChatUnreadTracker unreadTracker;
+    private final ChatSearchIndex searchIndex;
+    private final ChatPresenceRegistry presence;
+    private final ChatMembershipIndex membership;
     private final ChatUsersRepository usersRepo;
-    private final ChatRoomRepository roomRepo;
+    private final ChatContentStore contentStore;
 
     // 👇 직원 서비스는 건드리지 않고 Repository만 읽기용 주입
     private final EmployeeRepository employeeRepository;
@@ -99,28 +108,63 @@ public class ChatController {
        ---------------------------- */
     @GetMapping("/rooms/my")
     public List<MyRoom> myRooms(@RequestParam(name = "me") int me) { // ★ name 명시
-        var my = usersRepo.findAllByUser(me);
-        List<MyRoom> out = new ArrayList<>(my.size());
-        for (var cu : my) {
-            int roomId = cu.getId().getRoomId();
-
-            // 표시용 peer(첫 번째 상대)
-            var peers = usersRepo.findPeerIds(roomId, me);
-            Integer peerId = peers.isEmpty() ? null : peers.get(0);
-
-            // 방 메타 정보
-            ChatRoom room = roomRepo.findById(roomId).orElse(null);
-            String name = room != null ? room.getName() : null;
-            String type = (room != null && room.getType() != null) ? room.getType().name() : null;
-
-            // DIRECT면 상대 이름 조회
-            String peerName = (peerId != null && "DIRECT".equals(type)) ? findEmployeeName(peerId) : null;
+        var rows = usersRepo.findRoomSummaries(me);
+        List<MyRoom> out = new ArrayList<>(rows.size());
+        for (var r : rows) {
+            out.add(new MyRoom(r.getRoomId(), r.getPeerId(), r.getPeerName(), r.getName(), r.getType()));
+        }
+        return out;
+    }
 
-            out.add(new MyRoom(roomId, peerId, peerName, name, type));
+    /* ----------------------------
+       3-1) 내 방 목록 요약 (마지막 메시지 미리보기 포함, 최근 활동 순)
+       GET /api/chat/rooms/my/summary?me=1001
+       ---------------------------- */
+    @GetMapping("/rooms/my/summary")
+    public List<RoomSummary> myRoomSummaries(@RequestParam(name = "me") int me) {
+        var rows = usersRepo.findRoomSummaries(me);
+        List<RoomSummary> out = new ArrayList<>(rows.size());
+        for (var r : rows) {
+            out.add(new RoomSummary(
+                    r.getRoomId(),
+                    r.getName(),
+                    r.getType(),
+                    r.getCreatedAt(),
+                    r.getPeerId(),
+                    r.getPeerName(),
+                    r.getLastMessageId(),
+                    r.getLastSenderId(),
+                    r.getLastPreview(),
+                    r.getLastTime(),
+                    unreadTracker.lastReadId(r.getRoomId(), me, r.getLastReadId()),
+                    unreadTracker.unread(r.getRoomId(), me, r.getUnread())
+            ));
         }
         return out;
     }
 
+    /* ----------------------------
+       3-2) 접속 상태 일괄 조회 (방 목록용)
+       GET /api/chat/presence?me=1001            → 내 방 멤버 전체
+       GET /api/chat/presence?ids=1001,1002      → 지정 사용자
+       반환: { "1001": "ONLINE", "1002": "AWAY", ... }
+       ---------------------------- */
+    @GetMapping("/presence")
+    public Map<Integer, ChatPresenceRegistry.Status> presence(
+            @RequestParam(name = "me", required = false) Integer me,
+            @RequestParam(name = "ids", required = false) List<Integer> ids
+    ) {
+        Set<Integer> targets = new TreeSet<>();
+        if (ids != null) targets.addAll(ids);
+        if (me != null) {
+            for (var cu : usersRepo.findAllByUser(me)) {
+                for (int uid : membership.members(cu.getId().getRoomId())) targets.add(uid);
+            }
+            targets.remove(me);
+        }
+        return presence.statuses(targets);
+    }
+
     /* ----------------------------
        4) 메시지 전송(REST; 기본은 STOMP 사용)
        POST /api/chat/messages?roomId=1&senderId=1001&content=안녕
@@ -135,7 +179,35 @@ public class ChatController {
             return ResponseEntity.ok(chatService.send(roomId, senderId, content));
         } catch (IllegalArgumentException ex) {
             return ResponseEntity.badRequest().body(ex.getMessage());
+        } catch (IllegalStateException ex) {
+            // write-behind 저장 큐 혼잡 / 종료 중 → 잠시 후 재시도
+            return ResponseEntity.status(503).body(ex.getMessage());
+        }
+    }
+
+    /* ----------------------------
+       4-1) 큰 메시지 원문 (방송/히스토리에는 미리보기만, fullSize 가 있는 메시지)
+       GET /api/chat/messages/{messageId}/content?me=1001
+       반환: { messageId, roomId, size, content }
+       ---------------------------- */
+    @GetMapping("/messages/{messageId}/content")
+    public ResponseEntity<?> fullContent(
+            @PathVariable(name = "messageId") Integer messageId,
+            @RequestParam(name = "me") Integer me
+    ) {
+        ChatMessageRepositoryCustom.Blob blob = contentStore.findBlob(messageId);
+        if (blob == null) {
+            return ResponseEntity.status(404).body(Map.of("message", "원문이 따로 저장된 메시지가 아닙니다."));
         }
+        if (!membership.isMember(blob.roomId(), me)) {
+            return ResponseEntity.status(403).body(Map.of("message", "방 멤버가 아닙니다."));
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("messageId", blob.messageId());
+        body.put("roomId", blob.roomId());
+        body.put("size", blob.size());
+        body.put("content", contentStore.fullContent(blob));
+        return ResponseEntity.ok(body);
     }
 
     /* ----------------------------
@@ -151,6 +223,69 @@ public class ChatController {
         return chatService.history(roomId, beforeId, size);
     }
 
+    /* ----------------------------
+       5-1) keyset 히스토리 (COUNT 없음)
+       GET /api/chat/rooms/{roomId}/messages/slice?beforeId=&size=50   (최신 → 과거)
+       GET /api/chat/rooms/{roomId}/messages/slice?afterId=&size=50    (재접속 따라잡기, 과거 → 최신)
+       반환: { messages, nextBeforeId, nextAfterId, hasMore }
+       ---------------------------- */
+    @GetMapping("/rooms/{roomId}/messages/slice")
+    public ChatService.HistorySlice historySlice(
+            @PathVariable(name = "roomId") Integer roomId,
+            @RequestParam(name = "beforeId", required = false) Integer beforeId,
+            @RequestParam(name = "afterId", required = false) Integer afterId,
+            @RequestParam(name = "size", defaultValue = "50") Integer size
+    ) {
+        return chatService.historySlice(roomId, beforeId, afterId, size);
+    }
+
+    /* ----------------------------
+       5-2) 재접속 델타 동기화 (내 모든 방의 누락 메시지 한 번에)
+       POST /api/chat/sync?me=1001
+       body: { "cursors": { "12": 5301, "15": 880 }, "perRoom": 100, "maxTotal": 500 }
+       반환: { rooms:[{ roomId, messages, nextAfterId, hasMore }], newRoomIds, removedRoomIds, complete }
+       ---------------------------- */
+    @PostMapping("/sync")
+    public ChatService.SyncResult sync(
+            @RequestParam(name = "me") int me,
+            @RequestBody(required = false) SyncReq req
+    ) {
+        Map<Integer, Integer> cursors = (req == null) ? null : req.cursors();
+        int perRoom = (req == null || req.perRoom() == null) ? 100 : req.perRoom();
+        int maxTotal = (req == null || req.maxTotal() == null) ? 500 : req.maxTotal();
+        return chatService.sync(me, cursors, perRoom, maxTotal);
+    }
+
+    /* ----------------------------
+       5-3) 메시지 본문 검색 (내가 속한 방만, 최신 → 과거)
+       GET /api/chat/search?me=1001&q=회의실&beforeId=&size=20
+       반환: { messages, nextBeforeId, hasMore, indexReady, indexedFromId }
+       - hasMore 면 messages 가 size 보다 적어도 nextBeforeId 로 이어서 조회
+       - 큰 본문은 미리보기만, 아카이브된 메시지 / indexedFromId 이전 메시지는 검색되지 않음
+       ---------------------------- */
+    @GetMapping("/search")
+    public ResponseEntity<?> search(
+            @RequestParam(name = "me") int me,
+            @RequestParam(name = "q") String q,
+            @RequestParam(name = "beforeId", required = false) Integer beforeId,
+            @RequestParam(name = "size", defaultValue = "20") Integer size
+    ) {
+        try {
+            return ResponseEntity.ok(searchIndex.search(me, q, beforeId, size));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("message", ex.getMessage()));
+        }
+    }
+
+    /* ----------------------------
+       5-4) 검색 색인 재구축 (DB 전체 재색인, 백그라운드)
+       POST /api/chat/search/rebuild
+       ---------------------------- */
+    @PostMapping("/search/rebuild")
+    public Map<String, Object> rebuildSearchIndex() {
+        return Map.of("started", searchIndex.rebuildAsync());
+    }
+
     /* ----------------------------
        6) 방 나가기
        ---------------------------- */
@@ -163,6 +298,24 @@ public class ChatController {
         return Map.of("left", true, "roomRemoved", roomRemoved);
     }
 
+    /* ----------------------------
+       6-1) 읽음 처리 (STOMP: /app/rooms/{roomId}/read 와 동일)
+       POST /api/chat/rooms/{roomId}/read?me=1001&upTo=
+       ---------------------------- */
+    @PostMapping("/rooms/{roomId}/read")
+    public ResponseEntity<?> markRead(
+            @PathVariable(name = "roomId") Integer roomId,
+            @RequestParam(name = "me") int me,
+            @RequestParam(name = "upTo", required = false) Integer upTo
+    ) {
+        try {
+            var read = chatService.markRead(roomId, me, upTo);
+            return ResponseEntity.ok(Map.of("roomId", roomId, "lastReadId", read.lastReadId(), "unread", read.unread()));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("message", ex.getMessage()));
+        }
+    }
+
     /* ----------------------------
        7) 방 참여(방번호로 참가)
        ---------------------------- */
@@ -184,8 +337,8 @@ public class ChatController {
             @RequestBody InviteReq req
     ) {
         var ids = (req == null || req.memberIds() == null) ? List.<Integer>of() : req.memberIds();
-        groupRoomService.addMembers(roomId, ids);
-        return Map.of("invited", ids.size());
+        List<Integer> added = groupRoomService.addMembers(roomId, ids);
+        return Map.of("invited", ids.size(), "added", added);
     }
 
     /* ===== 내부 유틸 ===== */
@@ -199,6 +352,7 @@ public class ChatController {
     /* ===== DTO ===== */
     public record CreateGroupReq(String name, List<Integer> memberIds) {}
     public record InviteReq(List<Integer> memberIds) {}
+    public record SyncReq(Map<Integer, Integer> cursors, Integer perRoom, Integer maxTotal) {}
 
     @JsonInclude(JsonInclude.Include.NON_NULL)
     public record DirectRoomResponse(
@@ -213,4 +367,20 @@ public class ChatController {
 
     // 👇 peerName 추가
     public record MyRoom(Integer roomId, Integer peerId, String peerName, String name, String type) {}
+
+    // 방 목록 요약 (최근 활동 순)
+    public record RoomSummary(
+            Integer roomId,
+            String name,
+            String type,
+            LocalDateTime createdAt,
+            Integer peerId,
+            String peerName,
+            Integer lastMessageId,
+            Integer lastSenderId,
+            String lastPreview,
+            LocalDateTime lastTime,
+            Integer lastReadId,    // 내 읽음 커서
+            Integer unread         // 안 읽은 메시지 수
+    ) {}
 }
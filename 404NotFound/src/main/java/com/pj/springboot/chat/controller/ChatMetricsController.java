@@ -0,0 +1,93 @@
+package com.pj.springboot.chat.controller;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.pj.springboot.chat.service.ChatAlertAggregator;
+import com.pj.springboot.chat.service.ChatContentStore;
+import com.pj.springboot.chat.service.ChatFanoutService;
+import com.pj.springboot.chat.service.ChatHotTailCache;
+import com.pj.springboot.chat.service.ChatMembershipIndex;
+import com.pj.springboot.chat.service.ChatMessageArchiveService;
+import com.pj.springboot.chat.service.ChatPresenceRegistry;
+import com.pj.springboot.chat.service.ChatRateLimiter;
+import com.pj.springboot.chat.service.ChatRoomPurgeService;
+import com.pj.springboot.chat.service.ChatSearchIndex;
+import com.pj.springboot.chat.service.ChatTypingCoalescer;
+import com.pj.springboot.chat.service.ChatUnreadTracker;
+import com.pj.springboot.chat.service.ChatWriteBehindService;
+import com.pj.springboot.chat.service.DirectRoomService;
+import com.pj.springboot.config.WebSocketChannelMetrics;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 채팅 내부 지표 조회
+ * GET /api/chat/metrics
+ */
+@RestController
+@RequestMapping("/api/chat/metrics")
+@RequiredArgsConstructor
+public class ChatMetricsController {
+
+    private final ChatWriteBehindService writeBehind;
+    private final ChatMembershipIndex membership;
+    private final ChatFanoutService fanout;
+    private final ChatUnreadTracker unreadTracker;
+    private final ChatHotTailCache hotTail;
+    private final ChatRoomPurgeService purge;
+    private final ChatMessageArchiveService archive;
+    private final ChatContentStore content;
+    private final ChatSearchIndex search;
+    private final ChatPresenceRegistry presence;
+    private final ChatTypingCoalescer typing;
+    private final ChatAlertAggregator alerts;
+    private final ChatRateLimiter rateLimit;
+    private final DirectRoomService directRooms;
+    private final WebSocketChannelMetrics channels;
+
+    @GetMapping
+    public Map<String, Object> metrics() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("writeBehind", writeBehind.stats());
+        body.put("membership", membership.stats());
+        body.put("fanout", fanout.stats());
+        body.put("unread", unreadTracker.stats());
+        body.put("hotTail", hotTail.stats());
+        body.put("purge", purge.stats());
+        body.put("archive", archive.stats());
+        body.put("content", content.stats());
+        body.put("search", search.stats());
+        body.put("presence", presence.stats());
+        body.put("typing", typing.stats());
+        body.put("alerts", alerts.stats());
+        body.put("rateLimit", rateLimit.stats());
+        body.put("directRooms", directRooms.stats());
+        body.put("channels", channels.stats());
+        body.put("jvm", jvm());
+        return body;
+    }
+
+    /** 힙 / GC 누적치 (부하 테스트 전후 비교용) */
+    private static Map<String, Object> jvm() {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        Map<String, Object> gc = new LinkedHashMap<>();
+        for (GarbageCollectorMXBean b : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gc.put(b.getName(), Map.of("count", b.getCollectionCount(), "timeMs", b.getCollectionTime()));
+        }
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("heapUsedMb", heap.getUsed() / (1024 * 1024));
+        m.put("heapCommittedMb", heap.getCommitted() / (1024 * 1024));
+        m.put("heapMaxMb", heap.getMax() < 0 ? -1 : heap.getMax() / (1024 * 1024));
+        m.put("threads", ManagementFactory.getThreadMXBean().getThreadCount());
+        m.put("gc", gc);
+        return m;
+    }
+}
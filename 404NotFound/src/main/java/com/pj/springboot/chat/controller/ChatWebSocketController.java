@@ -1,7 +1,6 @@
 package com.pj.springboot.chat.controller;
 
 import java.time.LocalDateTime;
-import java.util.List;
 import java.util.Map;
 
 import org.springframework.messaging.handler.annotation.DestinationVariable;
@@ -12,8 +11,10 @@ import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
 
 import com.pj.springboot.chat.ChatMessage;
-import com.pj.springboot.chat.repository.ChatUsersRepository;
+import com.pj.springboot.chat.service.ChatAlertAggregator;
+import com.pj.springboot.chat.service.ChatMembershipIndex;
 import com.pj.springboot.chat.service.ChatService;
+import com.pj.springboot.chat.service.ChatTypingCoalescer;
 
 import lombok.RequiredArgsConstructor;
 
@@ -22,8 +23,10 @@ import lombok.RequiredArgsConstructor;
 public class ChatWebSocketController {
 
     private final ChatService chatService;
-    private final ChatUsersRepository usersRepo;
+    private final ChatMembershipIndex membership;
     private final SimpMessagingTemplate messagingTemplate;
+    private final ChatAlertAggregator alertAggregator;
+    private final ChatTypingCoalescer typingCoalescer;
 
     private int requireMeFromHeaders(SimpMessageHeaderAccessor headers) {
         Map<String, Object> attrs = headers.getSessionAttributes();
@@ -40,29 +43,64 @@ public class ChatWebSocketController {
                            SimpMessageHeaderAccessor headers) {
 
         int me = requireMeFromHeaders(headers);
-        ChatMessage saved = chatService.send(roomId, me, payload.content());
+        ChatMessage saved;
+        try {
+            saved = chatService.send(roomId, me, payload.content());
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            // 길이 초과 / 멤버 아님 / 저장 큐 혼잡·종료 중 → 보낸 사람에게만 안내
+            messagingTemplate.convertAndSend("/topic/users/" + me + "/alerts",
+                    new SendRejected("SEND_REJECTED", roomId, e.getMessage()));
+            return;
+        }
 
         // 1) 방 토픽으로 메시지 브로드캐스트
         WsMessage dto = WsMessage.from(saved);
         messagingTemplate.convertAndSend("/topic/rooms/" + roomId, dto);
 
-        // 2) 사용자 알림 (보낸 사람 제외)
-        List<Integer> peers = usersRepo.findPeerIds(roomId, me);
-        Alert alert = new Alert("NEW_MESSAGE", roomId, me, snippet(saved.getContent(), 60), saved.getTime());
-        for (Integer uid : peers) {
-            messagingTemplate.convertAndSend("/topic/users/" + uid + "/alerts", alert);
-        }
+        // 2) 사용자 알림 (보낸 사람 제외, 방을 보고 있는 사람 제외) — 짧은 창 안의 연속 알림은 DIGEST 로 합침
+        int[] peers = membership.peerIds(roomId, me);
+        alertAggregator.submit(roomId, peers, me, snippet(saved.getContent(), 60), saved.getTime());
+    }
+
+    /** 읽음 처리: 커서 전진 후 내 다른 탭/기기에도 READ 알림 */
+    @MessageMapping("/rooms/{roomId}/read")
+    public void markRead(@DestinationVariable("roomId") Integer roomId,
+                         @Payload(required = false) WsReadMessage payload,
+                         SimpMessageHeaderAccessor headers) {
+
+        int me = requireMeFromHeaders(headers);
+        var read = chatService.markRead(roomId, me, payload != null ? payload.upTo() : null);
+        messagingTemplate.convertAndSend("/topic/users/" + me + "/alerts",
+                new ReadAlert("READ", roomId, read.lastReadId(), read.unread()));
+    }
+
+    /** 입력 중 표시: 바로 보내지 않고 방 단위로 모아서 주기적으로 브로드캐스트 */
+    @MessageMapping("/rooms/{roomId}/typing")
+    public void typing(@DestinationVariable("roomId") Integer roomId,
+                       @Payload(required = false) WsTypingMessage payload,
+                       SimpMessageHeaderAccessor headers) {
+
+        int me = requireMeFromHeaders(headers);
+        if (!membership.isMember(roomId, me)) return;
+        typingCoalescer.typing(roomId, me, payload == null || payload.typing() == null || payload.typing());
     }
 
     public record WsSendMessage(String content) {}
 
-    public record WsMessage(Integer id, Integer roomId, Integer senderId, String content, LocalDateTime time) {
+    public record WsTypingMessage(Boolean typing) {}
+
+    public record WsReadMessage(Integer upTo) {}
+
+    /** fullSize != null 이면 content 는 미리보기 → GET /api/chat/messages/{id}/content 로 원문 */
+    public record WsMessage(Integer id, Integer roomId, Integer senderId, String content, LocalDateTime time, Integer fullSize) {
         static WsMessage from(ChatMessage m) {
-            return new WsMessage(m.getId(), m.getRoomId(), m.getSenderId(), m.getContent(), m.getTime());
+            return new WsMessage(m.getId(), m.getRoomId(), m.getSenderId(), m.getContent(), m.getTime(), m.getFullSize());
         }
     }
 
-    public record Alert(String type, Integer roomId, Integer fromUserId, String preview, LocalDateTime time) {}
+    public record SendRejected(String type, Integer roomId, String message) {}
+
+    public record ReadAlert(String type, Integer roomId, Integer lastReadId, Integer unread) {}
 
     private static String snippet(String s, int len) {
         if (s == null) return "";
@@ -1,27 +1,41 @@
 package com.pj.springboot.chat.repository;
 
+import java.util.List;
+
 import com.pj.springboot.chat.ChatMessage;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface ChatMessageRepository extends JpaRepository<ChatMessage, Integer>
+public interface ChatMessageRepository extends JpaRepository<ChatMessage, Integer>, ChatMessageRepositoryCustom
 {
-    // 최신 → 과거 커서 페이징
-    @Query("""
-           select m from ChatMessage m
-            where m.roomId = :roomId
-              and (:beforeId is null or m.id < :beforeId)
-            order by m.id desc
-           """)
-    Page<ChatMessage> pageHistory(@Param("roomId") Integer roomId,
-                                  @Param("beforeId") Integer beforeId,
-                                  Pageable pageable);
-
-    // 방의 모든 메시지 삭제
-    void deleteByRoomId(Integer roomId);
+    // 최신 → 과거 keyset 페이징 (COUNT 없음, idx_msg_room_id 사용)
+    List<ChatMessage> findByRoomIdOrderByIdDesc(Integer roomId, Limit limit);
+
+    List<ChatMessage> findByRoomIdAndIdLessThanOrderByIdDesc(Integer roomId, Integer beforeId, Limit limit);
+
+    // 방의 가장 오래된 메시지부터 (아카이브 대상 선정)
+    List<ChatMessage> findByRoomIdOrderByIdAsc(Integer roomId, Limit limit);
+
+    // 과거 → 최신 (재접속 후 따라잡기)
+    List<ChatMessage> findByRoomIdAndIdGreaterThanOrderByIdAsc(Integer roomId, Integer afterId, Limit limit);
+
+    // 전체 메시지 id 순 순회 (검색 색인 재구축)
+    List<ChatMessage> findByIdGreaterThanOrderByIdAsc(Integer afterId, Limit limit);
+
+    // afterId 이후 다른 사람이 보낸 메시지 수 (일부만 읽음 처리할 때 남은 안 읽음 수)
+    @Query("select count(m) from ChatMessage m where m.roomId = :roomId and m.id > :afterId and m.senderId <> :userId")
+    long countUnreadAfter(@Param("roomId") Integer roomId, @Param("afterId") Integer afterId, @Param("userId") Integer userId);
+
+    // (afterId, beforeId) 구간의 다른 사람 메시지 수 (beforeId 이후는 write-behind 미저장분으로 따로 셀 때)
+    @Query("select count(m) from ChatMessage m where m.roomId = :roomId and m.id > :afterId and m.id < :beforeId and m.senderId <> :userId")
+    long countUnreadBetween(@Param("roomId") Integer roomId, @Param("afterId") Integer afterId,
+                            @Param("beforeId") Integer beforeId, @Param("userId") Integer userId);
+
+    // 방의 마지막 message_id (없으면 null)
+    @Query("select max(m.id) from ChatMessage m where m.roomId = :roomId")
+    Integer findLastIdByRoom(@Param("roomId") Integer roomId);
 }
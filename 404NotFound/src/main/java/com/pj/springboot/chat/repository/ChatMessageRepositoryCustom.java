@@ -0,0 +1,85 @@
+package com.pj.springboot.chat.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import com.pj.springboot.chat.ChatMessage;
+
+/** ChatMessageRepository 커스텀 프래그먼트 (JDBC 일괄 처리) */
+public interface ChatMessageRepositoryCustom {
+
+    /**
+     * id/time이 미리 채워진 메시지들을 한 번에 INSERT 한다.
+     * (rewriteBatchedStatements=true 이면 multi-row INSERT 한 문장으로 전송)
+     */
+    void insertBatch(List<ChatMessage> batch);
+
+    /**
+     * 이미 쓰인 적 있는 가장 큰 message_id (write-behind id 발급 시작점).
+     * chat_message 뿐 아니라 아카이브 세그먼트 / 원문 blob 의 최대 id 까지 보므로
+     * 아카이브로 행이 옮겨져도 예전 id 를 다시 내주지 않는다.
+     * (AUTO_INCREMENT 는 information_schema 통계 캐시 때문에 세션 설정을 바꿔야 정확해서 쓰지 않음)
+     */
+    int findMaxAllocatedId();
+
+    /**
+     * 방 메시지를 최대 limit 건 삭제 (DELETE ... LIMIT, idx_msg_room_id 사용)
+     * 트랜잭션 밖에서 호출하면 청크마다 바로 커밋되어 잠금이 짧게 유지된다.
+     * @return 삭제된 행 수
+     */
+    int deleteChunkByRoom(int roomId, int limit);
+
+    /** chat_room 에는 없는데 메시지(또는 아카이브 세그먼트)가 남아 있는 방 ID (중단된 정리 작업 복구용) */
+    List<Integer> findOrphanRoomIds(int limit);
+
+    // ===== 큰 본문 원문 (chat_message_blob) =====
+
+    void insertBlob(Blob blob);
+
+    Optional<Blob> findBlob(int messageId);
+
+    /** 방 원문을 최대 limit 건 삭제 */
+    int deleteBlobChunkByRoom(int roomId, int limit);
+
+    /** gzip 압축된 원문 (size = 압축 전 바이트 수) */
+    record Blob(int messageId, int roomId, int size, byte[] data) {}
+
+    // ===== 아카이브 세그먼트 (chat_message_segment) =====
+
+    /**
+     * cutoff 이전 메시지가 minCount 건 이상 남아 있는 방 ID (아카이브 대상), afterRoomId 다음부터 방 ID 순.
+     * 세그먼트 하나를 못 채우는 방은 빼서 매번 같은 방만 다시 고르지 않도록.
+     */
+    List<Integer> findRoomIdsWithMessagesBefore(LocalDateTime cutoff, int afterRoomId, int minCount, int limit);
+
+    /**
+     * 세그먼트 한 개 저장 후, 같은 범위의 원본 메시지 삭제.
+     * 호출 측 트랜잭션 안에서 실행해야 둘이 함께 반영된다.
+     * @return 삭제된 원본 메시지 수 (count 와 다르면 호출 측에서 롤백)
+     */
+    int moveToSegment(Segment segment);
+
+    /** beforeId 보다 앞선 메시지를 가진 세그먼트, 최신 → 과거 순 */
+    List<Segment> findSegmentsBefore(int roomId, int beforeId, int limit);
+
+    /** afterId 이후 메시지를 가진 세그먼트, 과거 → 최신 순 */
+    List<Segment> findSegmentsAfter(int roomId, int afterId, int limit);
+
+    /** 방에서 아카이브된 마지막 message_id (없으면 0) */
+    int findArchivedUpTo(int roomId);
+
+    /** 방 세그먼트를 최대 limit 개 삭제 */
+    int deleteSegmentChunkByRoom(int roomId, int limit);
+
+    /**
+     * MySQL named lock(GET_LOCK, 대기 없음)을 잡은 동안만 work 실행 → 여러 노드 중 한 곳에서만 돈다.
+     * 잠금은 연결 단위라 work 가 끝날 때까지 연결 하나를 붙잡고 있다가 RELEASE_LOCK.
+     * @return 잠금을 못 잡아 실행하지 않았으면 false
+     */
+    boolean runExclusively(String lockName, Runnable work);
+
+    /** 압축된 메시지 묶음 한 개 (방 안에서 message_id 범위가 겹치지 않음) */
+    record Segment(Long id, int roomId, int firstId, int lastId, int count,
+                   LocalDateTime firstTime, LocalDateTime lastTime, byte[] data) {}
+}
@@ -0,0 +1,248 @@
+package com.pj.springboot.chat.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import com.pj.springboot.chat.ChatMessage;
+
+import lombok.RequiredArgsConstructor;
+
+/** ChatMessageRepositoryCustom 구현 (Spring Data가 Impl 접미사로 자동 연결) */
+@RequiredArgsConstructor
+public class ChatMessageRepositoryImpl implements ChatMessageRepositoryCustom {
+
+    private static final String INSERT_SQL = """
+            insert into chat_message (message_id, message_room_id, message_sender_id, message_content, message_time, message_full_size)
+            values (?, ?, ?, ?, ?, ?)
+            """;
+
+    // information_schema 통계 캐시(기본 24시간)를 끄고 읽어야 AUTO_INCREMENT 가 최신 값
+    private static final String MAX_ALLOCATED_ID_SQL = """
+            select greatest(
+                     coalesce((select max(message_id) from chat_message), 0),
+                     coalesce((select max(segment_last_id) from chat_message_segment), 0),
+                     coalesce((select max(blob_message_id) from chat_message_blob), 0))
+            """;
+
+    private static final String DELETE_CHUNK_SQL = """
+            delete from chat_message
+             where message_room_id = ?
+             order by message_id
+             limit ?
+            """;
+
+    private static final String ORPHAN_ROOMS_SQL = """
+            select o.room_id
+              from (select distinct message_room_id as room_id from chat_message
+                    union
+                    select distinct segment_room_id from chat_message_segment
+                    union
+                    select distinct blob_room_id from chat_message_blob) o
+              left join chat_room r on r.chat_id = o.room_id
+             where r.chat_id is null
+             limit ?
+            """;
+
+    private static final String INSERT_BLOB_SQL = """
+            insert into chat_message_blob (blob_message_id, blob_room_id, blob_size, blob_data)
+            values (?, ?, ?, ?)
+            """;
+
+    private static final String FIND_BLOB_SQL = """
+            select blob_message_id, blob_room_id, blob_size, blob_data
+              from chat_message_blob
+             where blob_message_id = ?
+            """;
+
+    private static final String DELETE_BLOB_CHUNK_SQL = """
+            delete from chat_message_blob
+             where blob_room_id = ?
+             limit ?
+            """;
+
+    private static final String ARCHIVE_ROOMS_SQL = """
+            select message_room_id
+              from chat_message
+             where message_time < ? and message_room_id > ?
+             group by message_room_id
+            having count(*) >= ?
+             order by message_room_id
+             limit ?
+            """;
+
+    private static final String INSERT_SEGMENT_SQL = """
+            insert into chat_message_segment
+                (segment_room_id, segment_first_id, segment_last_id, segment_count,
+                 segment_first_time, segment_last_time, segment_data)
+            values (?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final String DELETE_RANGE_SQL = """
+            delete from chat_message
+             where message_room_id = ?
+               and message_id between ? and ?
+            """;
+
+    private static final String SEGMENT_COLUMNS = """
+            select segment_id, segment_room_id, segment_first_id, segment_last_id, segment_count,
+                   segment_first_time, segment_last_time, segment_data
+              from chat_message_segment
+            """;
+
+    private static final String SEGMENTS_BEFORE_SQL = SEGMENT_COLUMNS + """
+             where segment_room_id = ?
+               and segment_first_id < ?
+             order by segment_last_id desc
+             limit ?
+            """;
+
+    private static final String SEGMENTS_AFTER_SQL = SEGMENT_COLUMNS + """
+             where segment_room_id = ?
+               and segment_last_id > ?
+             order by segment_last_id
+             limit ?
+            """;
+
+    private static final String GET_LOCK_SQL = "select get_lock(?, 0)";
+    private static final String RELEASE_LOCK_SQL = "select release_lock(?)";
+
+    private static final String ARCHIVED_UP_TO_SQL = """
+            select coalesce(max(segment_last_id), 0)
+              from chat_message_segment
+             where segment_room_id = ?
+            """;
+
+    private static final String DELETE_SEGMENT_CHUNK_SQL = """
+            delete from chat_message_segment
+             where segment_room_id = ?
+             limit ?
+            """;
+
+    private static final RowMapper<Segment> SEGMENT_MAPPER = (rs, i) -> new Segment(
+            rs.getLong("segment_id"),
+            rs.getInt("segment_room_id"),
+            rs.getInt("segment_first_id"),
+            rs.getInt("segment_last_id"),
+            rs.getInt("segment_count"),
+            rs.getTimestamp("segment_first_time").toLocalDateTime(),
+            rs.getTimestamp("segment_last_time").toLocalDateTime(),
+            rs.getBytes("segment_data"));
+
+    private final JdbcTemplate jdbc;
+
+    @Override
+    public void insertBatch(List<ChatMessage> batch) {
+        if (batch == null || batch.isEmpty()) return;
+        jdbc.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, m) -> {
+            ps.setInt(1, m.getId());
+            ps.setInt(2, m.getRoomId());
+            ps.setInt(3, m.getSenderId());
+            ps.setString(4, m.getContent());
+            ps.setTimestamp(5, Timestamp.valueOf(m.getTime()));
+            ps.setObject(6, m.getFullSize(), Types.INTEGER);
+        });
+    }
+
+    @Override
+    public int findMaxAllocatedId() {
+        Integer max = jdbc.queryForObject(MAX_ALLOCATED_ID_SQL, Integer.class);
+        return max == null ? 0 : max;
+    }
+
+    @Override
+    public int deleteChunkByRoom(int roomId, int limit) {
+        return jdbc.update(DELETE_CHUNK_SQL, roomId, limit);
+    }
+
+    @Override
+    public List<Integer> findOrphanRoomIds(int limit) {
+        return jdbc.queryForList(ORPHAN_ROOMS_SQL, Integer.class, limit);
+    }
+
+    @Override
+    public void insertBlob(Blob b) {
+        jdbc.update(INSERT_BLOB_SQL, b.messageId(), b.roomId(), b.size(), b.data());
+    }
+
+    @Override
+    public Optional<Blob> findBlob(int messageId) {
+        return jdbc.query(FIND_BLOB_SQL, (rs, i) -> new Blob(
+                rs.getInt("blob_message_id"),
+                rs.getInt("blob_room_id"),
+                rs.getInt("blob_size"),
+                rs.getBytes("blob_data")), messageId).stream().findFirst();
+    }
+
+    @Override
+    public int deleteBlobChunkByRoom(int roomId, int limit) {
+        return jdbc.update(DELETE_BLOB_CHUNK_SQL, roomId, limit);
+    }
+
+    @Override
+    public List<Integer> findRoomIdsWithMessagesBefore(LocalDateTime cutoff, int afterRoomId, int minCount, int limit) {
+        return jdbc.queryForList(ARCHIVE_ROOMS_SQL, Integer.class, Timestamp.valueOf(cutoff), afterRoomId, minCount, limit);
+    }
+
+    @Override
+    public int moveToSegment(Segment s) {
+        jdbc.update(INSERT_SEGMENT_SQL, s.roomId(), s.firstId(), s.lastId(), s.count(),
+                Timestamp.valueOf(s.firstTime()), Timestamp.valueOf(s.lastTime()), s.data());
+        return jdbc.update(DELETE_RANGE_SQL, s.roomId(), s.firstId(), s.lastId());
+    }
+
+    @Override
+    public List<Segment> findSegmentsBefore(int roomId, int beforeId, int limit) {
+        return jdbc.query(SEGMENTS_BEFORE_SQL, SEGMENT_MAPPER, roomId, beforeId, limit);
+    }
+
+    @Override
+    public List<Segment> findSegmentsAfter(int roomId, int afterId, int limit) {
+        return jdbc.query(SEGMENTS_AFTER_SQL, SEGMENT_MAPPER, roomId, afterId, limit);
+    }
+
+    @Override
+    public int findArchivedUpTo(int roomId) {
+        Integer v = jdbc.queryForObject(ARCHIVED_UP_TO_SQL, Integer.class, roomId);
+        return v == null ? 0 : v;
+    }
+
+    @Override
+    public int deleteSegmentChunkByRoom(int roomId, int limit) {
+        return jdbc.update(DELETE_SEGMENT_CHUNK_SQL, roomId, limit);
+    }
+
+    @Override
+    public boolean runExclusively(String lockName, Runnable work) {
+        // 잠금을 잡은 연결에서 해제까지 (work 안의 쿼리는 풀의 다른 연결 사용)
+        Boolean ran = jdbc.execute((ConnectionCallback<Boolean>) con -> {
+            if (namedLock(con, GET_LOCK_SQL, lockName) != 1) return false;
+            try {
+                work.run();
+            } finally {
+                namedLock(con, RELEASE_LOCK_SQL, lockName);
+            }
+            return true;
+        });
+        return Boolean.TRUE.equals(ran);
+    }
+
+    private static int namedLock(Connection con, String sql, String lockName) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setString(1, lockName);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;   // NULL(오류) 도 0
+            }
+        }
+    }
+}
@@ -13,11 +13,15 @@ import com.pj.springboot.chat.ChatRoom;
 import com.pj.springboot.chat.ChatType;
 
 @Repository
-public interface ChatRoomRepository extends JpaRepository<ChatRoom, Integer>
+public interface ChatRoomRepository extends JpaRepository<ChatRoom, Integer>, ChatRoomRepositoryCustom
 {
 	//dmKey로 DIRECT 방 조회 (파생 메서드)
     Optional<ChatRoom> findByTypeAndChatKey(ChatType type, String chatKey);
 
+    // 방 행 잠금 (DIRECT 방 멤버 보강 ↔ 마지막 멤버 나가기 직렬화), 이미 삭제된 방이면 null
+    @Query(value = "select chat_id from chat_room where chat_id = :id for update", nativeQuery = true)
+    Integer lockById(@Param("id") int id);
+
     //이름 LIKE 검색 + 정렬은 Pageable의 Sort로 (스샷 패턴)
     @Query("""
            select r from ChatRoom r
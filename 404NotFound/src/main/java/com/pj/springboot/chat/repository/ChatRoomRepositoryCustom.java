@@ -0,0 +1,12 @@
+package com.pj.springboot.chat.repository;
+
+/** ChatRoomRepository 커스텀 프래그먼트 (JDBC) */
+public interface ChatRoomRepositoryCustom {
+
+    /**
+     * DIRECT 방을 INSERT IGNORE 로 생성 (chat_key UNIQUE 충돌 시 아무것도 하지 않음).
+     * 예외/재시도 없이 동시 생성 경쟁을 판별하기 위한 용도.
+     * @return 새로 만든 방 ID, 이미 같은 chat_key 가 있으면 null
+     */
+    Integer insertDirectRoomIfAbsent(String chatKey, String name);
+}
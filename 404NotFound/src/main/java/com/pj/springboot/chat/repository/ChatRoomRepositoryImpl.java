@@ -0,0 +1,35 @@
+package com.pj.springboot.chat.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import lombok.RequiredArgsConstructor;
+
+/** ChatRoomRepositoryCustom 구현 (Spring Data가 Impl 접미사로 자동 연결) */
+@RequiredArgsConstructor
+public class ChatRoomRepositoryImpl implements ChatRoomRepositoryCustom {
+
+    private static final String INSERT_DIRECT_SQL = """
+            insert ignore into chat_room (chat_name, chat_type, chat_key)
+            values (?, 'DIRECT', ?)
+            """;
+
+    private final JdbcTemplate jdbc;
+
+    @Override
+    public Integer insertDirectRoomIfAbsent(String chatKey, String name) {
+        KeyHolder keys = new GeneratedKeyHolder();
+        int inserted = jdbc.update(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT_DIRECT_SQL, Statement.RETURN_GENERATED_KEYS);
+            ps.setString(1, name);
+            ps.setString(2, chatKey);
+            return ps;
+        }, keys);
+        if (inserted == 0 || keys.getKey() == null) return null;
+        return keys.getKey().intValue();
+    }
+}
@@ -6,9 +6,10 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
-public interface ChatUsersRepository extends JpaRepository<ChatUsers, ChatUserId> {
+public interface ChatUsersRepository extends JpaRepository<ChatUsers, ChatUserId>, ChatUsersRepositoryCustom {
 
     // 내가 속한 모든 방
     @Query("select cu from ChatUsers cu where cu.id.userId = :userId")
@@ -23,6 +24,11 @@ public interface ChatUsersRepository extends JpaRepository<ChatUsers, ChatUserId
     @Query("select cu.id.userId from ChatUsers cu where cu.id.roomId = :roomId and cu.id.userId <> :me")
     List<Integer> findPeerIds(@Param("roomId") int roomId, @Param("me") int me);
 
+    // DB에 저장된 읽음 커서 (멤버가 아니면 null)
+    @Query(value = "select chat_last_read_id from chat_users where chat_room_id = :roomId and chat_user_id = :userId",
+           nativeQuery = true)
+    Integer findLastReadId(@Param("roomId") int roomId, @Param("userId") int userId);
+
     // 방의 현재 멤버 수
     @Query("select count(cu) from ChatUsers cu where cu.id.roomId = :roomId")
     long countMembers(@Param("roomId") int roomId);
@@ -30,4 +36,52 @@ public interface ChatUsersRepository extends JpaRepository<ChatUsers, ChatUserId
     // ✅ 방의 모든 멤버 ID (알림 발송용)
     @Query("select cu.id.userId from ChatUsers cu where cu.id.roomId = :roomId")
     List<Integer> findUserIdsByRoom(@Param("roomId") int roomId);
+
+    // ✅ 내 방 목록 요약 (방 메타 + 대표 상대 + 마지막 메시지) — 한 번의 쿼리, 최근 활동 순
+    @Query(value = """
+           select r.chat_id                  as roomId,
+                  r.chat_name                as name,
+                  r.chat_type                as type,
+                  r.chat_time                as createdAt,
+                  p.peer_id                  as peerId,
+                  e.employee_name            as peerName,
+                  m.message_id               as lastMessageId,
+                  m.message_sender_id        as lastSenderId,
+                  left(m.message_content, 60) as lastPreview,
+                  m.message_time             as lastTime,
+                  cu.chat_last_read_id       as lastReadId,
+                  cu.chat_unread_count       as unread
+             from chat_users cu
+             join chat_room r on r.chat_id = cu.chat_room_id
+             left join (select o.chat_room_id, min(o.chat_user_id) as peer_id
+                          from chat_users o
+                          join chat_users mine
+                            on mine.chat_room_id = o.chat_room_id and mine.chat_user_id = :me
+                         where o.chat_user_id <> :me
+                         group by o.chat_room_id) p on p.chat_room_id = r.chat_id
+             left join employees e
+                    on e.employee_id = p.peer_id and r.chat_type = 'DIRECT'
+             left join chat_message m
+                    on m.message_id = (select max(x.message_id) from chat_message x
+                                        where x.message_room_id = r.chat_id)
+            where cu.chat_user_id = :me
+            order by coalesce(m.message_time, r.chat_time) desc, r.chat_id desc
+           """, nativeQuery = true)
+    List<RoomSummaryRow> findRoomSummaries(@Param("me") int me);
+
+    /** findRoomSummaries 결과 projection */
+    interface RoomSummaryRow {
+        Integer getRoomId();
+        String getName();
+        String getType();
+        LocalDateTime getCreatedAt();
+        Integer getPeerId();
+        String getPeerName();
+        Integer getLastMessageId();
+        Integer getLastSenderId();
+        String getLastPreview();
+        LocalDateTime getLastTime();
+        Integer getLastReadId();
+        Integer getUnread();
+    }
 }
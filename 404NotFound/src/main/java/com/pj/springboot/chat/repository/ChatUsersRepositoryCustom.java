@@ -0,0 +1,30 @@
+package com.pj.springboot.chat.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/** ChatUsersRepository 커스텀 프래그먼트 (JDBC 일괄 처리) */
+public interface ChatUsersRepositoryCustom {
+
+    /**
+     * 메모리에 모아 둔 안 읽음/읽음 커서 변경분을 chat_users 에 반영한다.
+     *  - reset=false : chat_unread_count += unread
+     *  - reset=true  : chat_unread_count = unread, chat_last_read_id = max(기존, lastReadId)
+     */
+    void applyReadStates(List<ReadStateFlush> changes);
+
+    /**
+     * 보낸 사람 외 멤버 안 읽음 +1 (한 문장). 읽음 커서가 이미 messageId 이상인 멤버는 건너뜀
+     * → 다른 노드에서 먼저 읽음 처리된 뒤 늦게 도착한 증가분이 안 읽음을 다시 올리지 않도록 (relay 모드 즉시 반영용)
+     */
+    void addUnreadToPeers(int roomId, int senderId, int messageId);
+
+    /**
+     * 방 멤버 일괄 추가 (multi-row INSERT IGNORE).
+     *  - 방의 기존 멤버 행을 잠근 뒤(FOR UPDATE) 없는 사용자만 추가 → 동시 초대에도 결과가 정확함
+     * @return 이번 호출로 새로 추가된 사용자 ID (입력 순서 유지)
+     */
+    List<Integer> insertMembers(int roomId, Collection<Integer> userIds);
+
+    record ReadStateFlush(int roomId, int userId, boolean reset, int unread, int lastReadId) {}
+}
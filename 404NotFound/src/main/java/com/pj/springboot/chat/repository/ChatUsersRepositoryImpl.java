@@ -0,0 +1,101 @@
+package com.pj.springboot.chat.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import lombok.RequiredArgsConstructor;
+
+/** ChatUsersRepositoryCustom 구현 (Spring Data가 Impl 접미사로 자동 연결) */
+@RequiredArgsConstructor
+public class ChatUsersRepositoryImpl implements ChatUsersRepositoryCustom {
+
+    private static final String ADD_UNREAD_SQL = """
+            update chat_users
+               set chat_unread_count = chat_unread_count + ?
+             where chat_room_id = ? and chat_user_id = ?
+            """;
+
+    private static final String RESET_UNREAD_SQL = """
+            update chat_users
+               set chat_unread_count = ?,
+                   chat_last_read_id = greatest(chat_last_read_id, ?)
+             where chat_room_id = ? and chat_user_id = ?
+            """;
+
+    private static final String ADD_UNREAD_TO_PEERS_SQL = """
+            update chat_users
+               set chat_unread_count = chat_unread_count + 1
+             where chat_room_id = ? and chat_user_id <> ? and chat_last_read_id < ?
+            """;
+
+    private static final String LOCK_MEMBERS_SQL = """
+            select chat_user_id from chat_users where chat_room_id = ? for update
+            """;
+
+    // 한 statement 에 넣을 최대 행 수 (max_allowed_packet 여유)
+    private static final int INSERT_CHUNK = 1000;
+
+    private final JdbcTemplate jdbc;
+
+    @Override
+    public void addUnreadToPeers(int roomId, int senderId, int messageId) {
+        jdbc.update(ADD_UNREAD_TO_PEERS_SQL, roomId, senderId, messageId);
+    }
+
+    @Override
+    public List<Integer> insertMembers(int roomId, Collection<Integer> userIds) {
+        if (userIds == null || userIds.isEmpty()) return List.of();
+
+        Set<Integer> existing = new HashSet<>(jdbc.queryForList(LOCK_MEMBERS_SQL, Integer.class, roomId));
+        List<Integer> added = new ArrayList<>();
+        for (Integer uid : new LinkedHashSet<>(userIds)) {
+            if (uid != null && !existing.contains(uid)) added.add(uid);
+        }
+
+        for (int from = 0; from < added.size(); from += INSERT_CHUNK) {
+            List<Integer> chunk = added.subList(from, Math.min(from + INSERT_CHUNK, added.size()));
+            StringBuilder sql = new StringBuilder("insert ignore into chat_users (chat_room_id, chat_user_id) values ");
+            Object[] args = new Object[chunk.size() * 2];
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "(?, ?)" : ", (?, ?)");
+                args[i * 2] = roomId;
+                args[i * 2 + 1] = chunk.get(i);
+            }
+            jdbc.update(sql.toString(), args);
+        }
+        return added;
+    }
+
+    @Override
+    public void applyReadStates(List<ReadStateFlush> changes) {
+        if (changes == null || changes.isEmpty()) return;
+
+        List<ReadStateFlush> deltas = new ArrayList<>();
+        List<ReadStateFlush> resets = new ArrayList<>();
+        for (ReadStateFlush c : changes) {
+            (c.reset() ? resets : deltas).add(c);
+        }
+
+        if (!deltas.isEmpty()) {
+            jdbc.batchUpdate(ADD_UNREAD_SQL, deltas, deltas.size(), (ps, c) -> {
+                ps.setInt(1, c.unread());
+                ps.setInt(2, c.roomId());
+                ps.setInt(3, c.userId());
+            });
+        }
+        if (!resets.isEmpty()) {
+            jdbc.batchUpdate(RESET_UNREAD_SQL, resets, resets.size(), (ps, c) -> {
+                ps.setInt(1, c.unread());
+                ps.setInt(2, c.lastReadId());
+                ps.setInt(3, c.roomId());
+                ps.setInt(4, c.userId());
+            });
+        }
+    }
+}
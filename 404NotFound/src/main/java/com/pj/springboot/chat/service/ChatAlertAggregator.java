@@ -0,0 +1,160 @@
+package com.pj.springboot.chat.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * 사용자별 새 메시지 알림 합치기.
+ *  - (사용자, 방) 별로 창(window)을 열고, 창의 첫 알림은 바로 NEW_MESSAGE 로 전송
+ *  - 창이 열려 있는 동안 온 알림은 개수 + 마지막 미리보기만 모아 두었다가 창이 닫힐 때 DIGEST 한 건으로 전송
+ *  - 방을 열어 보고 있는 사용자(presence 구독 기준)는 알림 생략
+ */
+@Service
+public class ChatAlertAggregator {
+
+    private final ChatFanoutService fanout;
+    private final ChatPresenceRegistry presence;
+    private final boolean enabled;
+    private final long windowMillis;
+
+    // key = (userId << 32 | roomId) → 현재 창
+    private final ConcurrentHashMap<Long, Window> windows = new ConcurrentHashMap<>();
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder immediate = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder digests = new LongAdder();
+    private final LongAdder skippedViewing = new LongAdder();
+
+    public ChatAlertAggregator(ChatFanoutService fanout,
+                               ChatPresenceRegistry presence,
+                               @Value("${app.chat.alerts.coalesce.enabled:true}") boolean enabled,
+                               @Value("${app.chat.alerts.coalesce.window:PT3S}") Duration window) {
+        this.fanout = fanout;
+        this.presence = presence;
+        this.enabled = enabled;
+        this.windowMillis = window.toMillis();
+    }
+
+    /** 방 새 메시지 알림을 userIds 에게 (보낸 사람은 호출 측에서 제외) */
+    public void submit(int roomId, int[] userIds, int fromUserId, String preview, LocalDateTime time) {
+        if (userIds == null || userIds.length == 0) return;
+        received.add(userIds.length);
+
+        int[] now = new int[userIds.length];
+        int n = 0;
+        long deadline = System.currentTimeMillis() + windowMillis;
+        for (int uid : userIds) {
+            if (presence.isViewing(uid, roomId)) {
+                skippedViewing.increment();
+                continue;
+            }
+            if (!enabled) {
+                now[n++] = uid;
+                continue;
+            }
+            boolean[] opened = new boolean[1];
+            windows.compute(key(uid, roomId), (k, w) -> {
+                if (w == null) {
+                    opened[0] = true;
+                    return new Window(deadline);
+                }
+                w.add(fromUserId, preview, time);
+                return w;
+            });
+            if (opened[0]) now[n++] = uid;
+            else coalesced.increment();
+        }
+
+        if (n > 0) {
+            int[] targets = (n == now.length) ? now : Arrays.copyOf(now, n);
+            fanout.sendToUsers(targets, "alerts", new RoomAlert("NEW_MESSAGE", roomId, fromUserId, preview, time, 1));
+            immediate.add(n);
+        }
+    }
+
+    /** 닫힌 창 처리: 모인 알림이 있으면 DIGEST 전송 후 창 연장, 없으면 제거 */
+    @Scheduled(fixedDelayString = "${app.chat.alerts.coalesce.tick:PT0.5S}")
+    public void flush() {
+        if (windows.isEmpty()) return;
+        long now = System.currentTimeMillis();
+        for (Long k : windows.keySet()) {
+            RoomAlert[] out = new RoomAlert[1];
+            windows.computeIfPresent(k, (kk, w) -> {
+                if (w.closesAt > now) return w;
+                if (w.count == 0) return null;
+                out[0] = new RoomAlert("DIGEST", roomOf(kk), w.lastFrom, w.lastPreview, w.lastTime, w.count);
+                return new Window(now + windowMillis);   // 폭주 중이면 계속 묶어서 전송
+            });
+            if (out[0] != null) {
+                int uid = userOf(k);
+                // 그 사이 방을 열었다면 이미 본 것이므로 생략
+                if (!presence.isViewing(uid, out[0].roomId())) {
+                    fanout.sendToUsers(new int[] { uid }, "alerts", out[0]);
+                    digests.increment();
+                }
+            }
+        }
+    }
+
+    /** 알림 payload: NEW_MESSAGE(count=1) 또는 DIGEST(count=창 동안 모인 건수) */
+    public record RoomAlert(String type, Integer roomId, Integer fromUserId, String preview,
+                            LocalDateTime time, Integer count) {}
+
+    // ===== 내부 구현 =====
+
+    private static long key(int userId, int roomId) {
+        return ((long) userId << 32) | (roomId & 0xffffffffL);
+    }
+
+    private static int userOf(long key) {
+        return (int) (key >>> 32);
+    }
+
+    private static int roomOf(long key) {
+        return (int) key;
+    }
+
+    /** 창 하나 (ConcurrentHashMap.compute 안에서만 수정) */
+    private static final class Window {
+        final long closesAt;
+        int count;
+        int lastFrom;
+        String lastPreview;
+        LocalDateTime lastTime;
+
+        Window(long closesAt) {
+            this.closesAt = closesAt;
+        }
+
+        void add(int from, String preview, LocalDateTime time) {
+            count++;
+            lastFrom = from;
+            lastPreview = preview;
+            lastTime = time;
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long r = received.sum();
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("enabled", enabled);
+        m.put("openWindows", windows.size());
+        m.put("received", r);
+        m.put("immediate", immediate.sum());
+        m.put("coalesced", coalesced.sum());
+        m.put("digests", digests.sum());
+        m.put("skippedViewing", skippedViewing.sum());
+        m.put("framesSavedRatio", r == 0 ? 0 : (double) (r - immediate.sum() - digests.sum()) / r);
+        return m;
+    }
+}
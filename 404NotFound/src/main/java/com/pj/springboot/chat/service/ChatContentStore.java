@@ -0,0 +1,157 @@
+package com.pj.springboot.chat.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.pj.springboot.chat.ChatMessage;
+import com.pj.springboot.chat.repository.ChatMessageRepository;
+import com.pj.springboot.chat.repository.ChatMessageRepositoryCustom.Blob;
+
+/**
+ * 메시지 본문 크기 등급.
+ *  - inline-max-bytes 이하: 그대로 chat_message 에 저장 / 전송
+ *  - 초과: 원문은 gzip 으로 chat_message_blob 에 따로 저장, chat_message·방송·히스토리에는 미리보기만
+ *          (message_full_size 에 원문 크기 → 클라이언트가 필요할 때 원문 조회)
+ *  - max-bytes 초과는 거절
+ */
+@Service
+public class ChatContentStore {
+
+    private final ChatMessageRepository msgRepo;
+    private final ChatWriteBehindService writeBehind;
+    private final int inlineMaxBytes;
+    private final int maxBytes;
+    private final int previewChars;
+
+    private final LongAdder inlineCount = new LongAdder();
+    private final LongAdder inlineBytes = new LongAdder();
+    private final LongAdder largeCount = new LongAdder();
+    private final LongAdder largeOriginalBytes = new LongAdder();
+    private final LongAdder largePreviewBytes = new LongAdder();
+    private final LongAdder largeStoredBytes = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder fullFetches = new LongAdder();
+
+    public ChatContentStore(ChatMessageRepository msgRepo,
+                            ChatWriteBehindService writeBehind,
+                            @Value("${app.chat.content.inline-max-bytes:2048}") int inlineMaxBytes,
+                            @Value("${app.chat.content.max-bytes:65536}") int maxBytes,
+                            @Value("${app.chat.content.preview-chars:300}") int previewChars) {
+        this.msgRepo = msgRepo;
+        this.writeBehind = writeBehind;
+        this.maxBytes = Math.max(1, maxBytes);
+        this.inlineMaxBytes = Math.max(1, Math.min(inlineMaxBytes, this.maxBytes));
+        this.previewChars = Math.max(1, previewChars);
+    }
+
+    /**
+     * 저장 전 본문 분류. 큰 본문이면 m.content 를 미리보기로 바꾸고 fullSize 를 채운 뒤
+     * 압축된 원문을 돌려준다 (id 발급 후 {@link #storeLarge} 로, write-behind 모드면 메시지와 함께 큐로 저장).
+     * @return 큰 본문이면 압축 원문, 아니면 null
+     */
+    public byte[] prepare(ChatMessage m) {
+        String content = m.getContent();
+        if (content == null) {
+            throw new IllegalArgumentException("메시지 내용이 없습니다.");
+        }
+        byte[] raw = content.getBytes(StandardCharsets.UTF_8);
+        if (raw.length > maxBytes) {
+            rejected.increment();
+            throw new IllegalArgumentException("메시지가 너무 깁니다. (최대 " + (maxBytes / 1024) + "KB)");
+        }
+        if (raw.length <= inlineMaxBytes) {
+            inlineCount.increment();
+            inlineBytes.add(raw.length);
+            m.setFullSize(null);
+            return null;
+        }
+
+        String preview = preview(content);
+        byte[] packed = gzip(raw);
+        m.setContent(preview);
+        m.setFullSize(raw.length);
+
+        largeCount.increment();
+        largeOriginalBytes.add(raw.length);
+        largePreviewBytes.add(preview.getBytes(StandardCharsets.UTF_8).length);
+        largeStoredBytes.add(packed.length);
+        return packed;
+    }
+
+    /** 큰 본문 원문 저장 (메시지 id 발급 이후) */
+    public void storeLarge(ChatMessage m, byte[] packed) {
+        msgRepo.insertBlob(new Blob(m.getId(), m.getRoomId(), m.getFullSize(), packed));
+    }
+
+    /** 원문 조회 (write-behind 로 아직 저장 전이면 대기 중인 원문). 분리 저장된 적 없는 메시지면 null */
+    public Blob findBlob(int messageId) {
+        Blob pending = writeBehind.pendingBlob(messageId);
+        if (pending != null) return pending;
+        return msgRepo.findBlob(messageId).orElse(null);
+    }
+
+    public String fullContent(Blob blob) {
+        fullFetches.increment();
+        return new String(gunzip(blob.data()), StandardCharsets.UTF_8);
+    }
+
+    // ===== 내부 구현 =====
+
+    /** 앞부분 previewChars 글자 (서로게이트 쌍은 자르지 않음) */
+    private String preview(String s) {
+        int end = Math.min(s.length(), previewChars);
+        if (end > 0 && end < s.length() && Character.isHighSurrogate(s.charAt(end - 1))) end--;
+        return s.substring(0, end) + "…";
+    }
+
+    private static byte[] gzip(byte[] raw) {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+        try (GZIPOutputStream out = new GZIPOutputStream(buf)) {
+            out.write(raw);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buf.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] packed) {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(packed))) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 등급별 누적 바이트.
+     * wireBytesSaved = 큰 본문을 미리보기로 대신 보내 방송/히스토리 응답 1건당 줄어든 바이트 합
+     */
+    public Map<String, Object> stats() {
+        long lc = largeCount.sum(), orig = largeOriginalBytes.sum(), prev = largePreviewBytes.sum(), stored = largeStoredBytes.sum();
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("inlineMaxBytes", inlineMaxBytes);
+        m.put("maxBytes", maxBytes);
+        m.put("inlineCount", inlineCount.sum());
+        m.put("inlineBytes", inlineBytes.sum());
+        m.put("largeCount", lc);
+        m.put("largeOriginalBytes", orig);
+        m.put("largePreviewBytes", prev);
+        m.put("largeStoredBytes", stored);
+        m.put("compressionRatio", stored == 0 ? 0 : (double) orig / stored);
+        m.put("wireBytesSaved", orig - prev);
+        m.put("rejected", rejected.sum());
+        m.put("fullFetches", fullFetches.sum());
+        return m;
+    }
+}
@@ -0,0 +1,78 @@
+package com.pj.springboot.chat.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeType;
+
+/**
+ * 사용자별 토픽(/topic/users/{uid}/...)으로 같은 payload를 뿌리는 fan-out.
+ *  - convertAndSend 를 N번 부르면 Jackson 직렬화도 N번 일어나므로
+ *    payload를 한 번만 byte[]로 인코딩하고, 목적지 헤더만 바꾼 메시지를 재사용한다.
+ */
+@Service
+public class ChatFanoutService {
+
+    private final SimpMessagingTemplate messagingTemplate;
+
+    private final LongAdder fanouts = new LongAdder();
+    private final LongAdder deliveries = new LongAdder();
+    private final LongAdder encodeNanos = new LongAdder();
+    private final LongAdder sendNanos = new LongAdder();
+
+    public ChatFanoutService(SimpMessagingTemplate messagingTemplate) {
+        this.messagingTemplate = messagingTemplate;
+    }
+
+    /** userIds 각각의 /topic/users/{uid}/{channel} 로 payload 전송 (직렬화 1회) */
+    public void sendToUsers(int[] userIds, String channel, Object payload) {
+        if (userIds == null || userIds.length == 0) return;
+
+        long t0 = System.nanoTime();
+        Message<?> encoded = encode(payload);
+        long t1 = System.nanoTime();
+
+        Object body = encoded.getPayload();
+        MimeType contentType = encoded.getHeaders().get(MessageHeaders.CONTENT_TYPE, MimeType.class);
+        for (int uid : userIds) {
+            String destination = "/topic/users/" + uid + "/" + channel;
+            SimpMessageHeaderAccessor h = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            h.setDestination(destination);
+            if (contentType != null) h.setContentType(contentType);
+            h.setLeaveMutable(true);
+            messagingTemplate.send(destination, MessageBuilder.createMessage(body, h.getMessageHeaders()));
+        }
+
+        fanouts.increment();
+        deliveries.add(userIds.length);
+        encodeNanos.add(t1 - t0);
+        sendNanos.add(System.nanoTime() - t1);
+    }
+
+    private Message<?> encode(Object payload) {
+        Message<?> m = messagingTemplate.getMessageConverter().toMessage(payload, new MessageHeaders(null));
+        if (m == null) {
+            throw new IllegalStateException("메시지 변환 실패: " + payload.getClass().getName());
+        }
+        return m;
+    }
+
+    public Map<String, Object> stats() {
+        long f = fanouts.sum(), d = deliveries.sum();
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("fanouts", f);
+        m.put("deliveries", d);
+        m.put("avgRecipients", f == 0 ? 0 : (double) d / f);
+        m.put("avgEncodeMicros", f == 0 ? 0 : encodeNanos.sum() / 1_000.0 / f);
+        m.put("avgSendMicrosPerRecipient", d == 0 ? 0 : sendNanos.sum() / 1_000.0 / d);
+        return m;
+    }
+}
@@ -0,0 +1,299 @@
+package com.pj.springboot.chat.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.pj.springboot.chat.ChatMessage;
+
+/**
+ * 방별 최근 메시지(hot tail) 캐시.
+ *  - 방마다 최근 N건을 링 버퍼로 보관, 전송 시 뒤에 추가
+ *  - 방 단위 LRU + 전체 메모리 예산(바이트 추정치)으로 축출
+ *  - 첫 페이지(beforeId == null) 조회만 캐시에서 처리, 과거 페이지는 DB
+ *  - relay 모드(멀티 노드)에서는 꺼짐: 다른 노드로 들어온 전송이 이 노드 tail 에 붙지 않으므로
+ */
+@Service
+public class ChatHotTailCache {
+
+    // 메시지 한 건 고정 오버헤드 추정치 (객체 헤더 + 필드 + String 헤더)
+    private static final int MESSAGE_OVERHEAD_BYTES = 96;
+
+    private final boolean enabled;
+    private final int perRoom;
+    private final long maxBytes;
+
+    // access-order LinkedHashMap = LRU, rooms 자체를 락으로 사용
+    private final LinkedHashMap<Integer, RoomTail> rooms = new LinkedHashMap<>(64, 0.75f, true);
+    private final AtomicLong bytes = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ChatHotTailCache(@Value("${app.chat.hot-tail.enabled:true}") boolean enabled,
+                            @Value("${app.chat.hot-tail.per-room:100}") int perRoom,
+                            @Value("${app.chat.hot-tail.max-bytes:33554432}") long maxBytes,
+                            @Value("${app.chat.broker.mode:simple}") String brokerMode) {
+        this.enabled = enabled && !"relay".equalsIgnoreCase(brokerMode);
+        this.perRoom = Math.max(1, perRoom);
+        this.maxBytes = Math.max(0, maxBytes);
+    }
+
+    /**
+     * 최신 → 과거 순으로 size건. 캐시로 답할 수 없으면 loader(최신 perRoom건, 최신→과거)로 채운다.
+     * @param pending 아직 DB에 반영되지 않은 방 메시지 (write-behind 큐)
+     */
+    public List<ChatMessage> newest(int roomId, int size,
+                                    IntFunction<List<ChatMessage>> loader,
+                                    IntFunction<List<ChatMessage>> pending) {
+        if (!enabled || size > perRoom) {
+            return loader.apply(size);
+        }
+
+        RoomTail tail;
+        synchronized (rooms) {
+            tail = rooms.get(roomId);
+        }
+        if (tail != null) {
+            List<ChatMessage> cached = tail.newest(size);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+        }
+        misses.increment();
+
+        // 빈 tail 을 먼저 등록 → 로딩 중 들어온 전송도 받아 둔 뒤 DB 결과와 병합
+        RoomTail fresh = new RoomTail(perRoom);
+        synchronized (rooms) {
+            RoomTail cur = rooms.get(roomId);
+            if (cur == null || !cur.isReady()) {
+                if (cur != null) bytes.addAndGet(-cur.retire());
+                rooms.put(roomId, fresh);
+            } else {
+                fresh = null;
+            }
+        }
+
+        // 미저장 메시지를 DB 조회보다 먼저 확보 (그 사이 커밋된 행은 DB 결과에 포함, 겹치면 seed 가 id 로 합침)
+        List<ChatMessage> uncommitted = fresh != null ? pending.apply(roomId) : List.of();
+        List<ChatMessage> loaded = loader.apply(perRoom);
+        if (fresh != null) {
+            List<ChatMessage> seed = new ArrayList<>(loaded);
+            seed.addAll(uncommitted);
+            bytes.addAndGet(fresh.seed(seed, loaded.size() < perRoom));
+            enforceBudget();
+        }
+        return loaded.size() > size ? new ArrayList<>(loaded.subList(0, size)) : loaded;
+    }
+
+    /** 전송된 메시지를 캐시된 방 tail 에 추가 (캐시에 없는 방은 무시) */
+    public void append(ChatMessage m) {
+        if (!enabled || m == null || m.getId() == null) return;
+        RoomTail tail;
+        synchronized (rooms) {
+            tail = rooms.get(m.getRoomId());
+        }
+        if (tail == null) return;
+        bytes.addAndGet(tail.append(copyOf(m)));
+        enforceBudget();
+    }
+
+    /** 저장되지 못한 메시지를 캐시된 방 tail 에서 제거 */
+    public void remove(int roomId, int messageId) {
+        if (!enabled) return;
+        RoomTail tail;
+        synchronized (rooms) {
+            tail = rooms.get(roomId);
+        }
+        if (tail != null) bytes.addAndGet(tail.remove(messageId));
+    }
+
+    public void evictRoom(int roomId) {
+        synchronized (rooms) {
+            RoomTail t = rooms.remove(roomId);
+            if (t != null) bytes.addAndGet(-t.retire());
+        }
+    }
+
+    // ===== 내부 구현 =====
+
+    private void enforceBudget() {
+        if (bytes.get() <= maxBytes) return;
+        synchronized (rooms) {
+            Iterator<RoomTail> it = rooms.values().iterator();
+            while (bytes.get() > maxBytes && it.hasNext()) {
+                RoomTail t = it.next();
+                it.remove();
+                bytes.addAndGet(-t.retire());
+                evictions.increment();
+            }
+        }
+    }
+
+    private static ChatMessage copyOf(ChatMessage m) {
+        ChatMessage c = new ChatMessage();
+        c.setId(m.getId());
+        c.setRoomId(m.getRoomId());
+        c.setSenderId(m.getSenderId());
+        c.setContent(m.getContent());
+        c.setFullSize(m.getFullSize());   // 큰 본문 표시(전체 보기) 유지
+        // 동기 저장 경로는 DB DEFAULT 시각을 다시 읽지 않으므로 근사값 사용
+        c.setTime(m.getTime() != null ? m.getTime() : LocalDateTime.now());
+        return c;
+    }
+
+    private static long sizeOf(ChatMessage m) {
+        String c = m.getContent();
+        return MESSAGE_OVERHEAD_BYTES + (c == null ? 0 : (long) c.length() * 2);
+    }
+
+    /** 방 하나의 최근 메시지 링 버퍼 (id 오름차순) */
+    private static final class RoomTail {
+        private final ChatMessage[] buf;
+        private int head;        // 가장 오래된 원소 위치
+        private int size;
+        private long bytes;
+        private boolean ready;      // DB 시드 완료 여부
+        private boolean exhaustive; // 방 전체 메시지가 버퍼에 다 들어 있음
+        private boolean retired;    // 캐시에서 빠짐 → 이후 변경은 예산에 반영하지 않음
+
+        RoomTail(int capacity) {
+            this.buf = new ChatMessage[capacity];
+        }
+
+        synchronized boolean isReady() {
+            return ready;
+        }
+
+        /** 캐시에서 제거: 이후 append/seed 무시, 현재 바이트 반환 */
+        synchronized long retire() {
+            retired = true;
+            return bytes;
+        }
+
+        /** 최신→과거 size건, 캐시로 답할 수 없으면 null */
+        synchronized List<ChatMessage> newest(int n) {
+            if (!ready) return null;
+            if (size < n && !exhaustive) return null;
+            int k = Math.min(n, size);
+            List<ChatMessage> out = new ArrayList<>(k);
+            for (int i = 0; i < k; i++) {
+                out.add(buf[(head + size - 1 - i) % buf.length]);
+            }
+            return out;
+        }
+
+        /** @return 바이트 증감 */
+        synchronized long append(ChatMessage m) {
+            if (retired) return 0;
+            if (size == 0 || buf[(head + size - 1) % buf.length].getId() < m.getId()) {
+                return push(m);
+            }
+            // 커밋 순서가 뒤바뀐 경우: 뒤에서부터 자리를 찾는다
+            List<ChatMessage> all = toList();
+            int pos = all.size();
+            while (pos > 0 && all.get(pos - 1).getId() >= m.getId()) {
+                if (all.get(pos - 1).getId().equals(m.getId())) return 0;
+                pos--;
+            }
+            if (pos == all.size()) {
+                return push(m);
+            }
+            all.add(pos, m);
+            return rebuild(all);
+        }
+
+        /** @return 바이트 증감 */
+        synchronized long remove(int messageId) {
+            if (retired) return 0;
+            List<ChatMessage> all = toList();
+            if (!all.removeIf(m -> m.getId() == messageId)) return 0;
+            boolean whole = exhaustive;
+            long delta = rebuild(all);
+            exhaustive = whole;
+            return delta;
+        }
+
+        /** DB 결과 + 로딩 중 추가된 메시지 병합 */
+        synchronized long seed(List<ChatMessage> loaded, boolean wholeRoom) {
+            if (retired) return 0;
+            Map<Integer, ChatMessage> byId = new LinkedHashMap<>();
+            for (ChatMessage m : loaded) byId.put(m.getId(), copyOf(m));
+            for (ChatMessage m : toList()) byId.put(m.getId(), m);
+            List<ChatMessage> all = new ArrayList<>(byId.values());
+            all.sort((a, b) -> Integer.compare(a.getId(), b.getId()));
+            long delta = rebuild(all);
+            ready = true;
+            exhaustive = wholeRoom && all.size() <= buf.length;
+            return delta;
+        }
+
+        private long push(ChatMessage m) {
+            long delta = sizeOf(m);
+            if (size == buf.length) {
+                delta -= sizeOf(buf[head]);
+                buf[head] = m;
+                head = (head + 1) % buf.length;
+                exhaustive = false;
+            } else {
+                buf[(head + size) % buf.length] = m;
+                size++;
+            }
+            bytes += delta;
+            return delta;
+        }
+
+        private long rebuild(List<ChatMessage> ascending) {
+            long before = bytes;
+            int from = Math.max(0, ascending.size() - buf.length);
+            if (from > 0) exhaustive = false;
+            Arrays.fill(buf, null);
+            head = 0;
+            size = 0;
+            bytes = 0;
+            for (ChatMessage m : ascending.subList(from, ascending.size())) {
+                buf[size++] = m;
+                bytes += sizeOf(m);
+            }
+            return bytes - before;
+        }
+
+        private List<ChatMessage> toList() {
+            if (size == 0) return new ArrayList<>(Collections.emptyList());
+            List<ChatMessage> out = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) out.add(buf[(head + i) % buf.length]);
+            return out;
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long h = hits.sum(), ms = misses.sum();
+        int roomCount;
+        synchronized (rooms) {
+            roomCount = rooms.size();
+        }
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("enabled", enabled);
+        m.put("rooms", roomCount);
+        m.put("bytes", bytes.get());
+        m.put("maxBytes", maxBytes);
+        m.put("hits", h);
+        m.put("misses", ms);
+        m.put("evictions", evictions.sum());
+        m.put("hitRatio", (h + ms) == 0 ? 0 : (double) h / (h + ms));
+        return m;
+    }
+}
@@ -0,0 +1,210 @@
+package com.pj.springboot.chat.service;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.pj.springboot.chat.repository.ChatUsersRepository;
+import com.pj.springboot.common.TxUtils;
+
+/**
+ * 방별 멤버 인덱스 (roomId → 정렬된 int[] 멤버 목록, copy-on-write).
+ *  - 전송 경로의 isMember / findPeerIds 쿼리를 메모리 조회로 대체
+ *  - 변경은 트랜잭션 커밋 이후 반영 (롤백 시 인덱스 오염 방지)
+ *  - 최초 조회(miss) 또는 "멤버 아님" 판정 시에만 DB에서 방 단위로 다시 읽음
+ *  - 다시 읽어도 멤버가 아니면 (방, 사용자)를 negative-ttl 동안 기억 → 비멤버가 계속 보내도 프레임마다 쿼리하지 않음
+ *  - relay 모드(멀티 노드)에서는 캐시하지 않고 매번 DB 조회: 다른 노드의 나가기/초대는 이 노드에 전달되지 않으므로
+ */
+@Service
+public class ChatMembershipIndex {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final ChatUsersRepository usersRepo;
+    private final boolean cacheEnabled;
+    private final ConcurrentHashMap<Integer, int[]> rooms = new ConcurrentHashMap<>();
+
+    // key = (roomId << 32 | userId) → "멤버 아님" 만료 시각
+    private final ConcurrentHashMap<Long, Long> denied = new ConcurrentHashMap<>();
+    private final long negativeTtlMillis;
+    private final int negativeMaxEntries;
+
+    // 로딩 중 변경이 끼어들면 오래된 스냅샷을 넣지 않기 위한 세대 번호
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder reloads = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+
+    public ChatMembershipIndex(ChatUsersRepository usersRepo,
+                               @Value("${app.chat.membership.negative-ttl:PT5S}") Duration negativeTtl,
+                               @Value("${app.chat.membership.negative-max-entries:10000}") int negativeMaxEntries,
+                               @Value("${app.chat.broker.mode:simple}") String brokerMode) {
+        this.usersRepo = usersRepo;
+        this.cacheEnabled = !"relay".equalsIgnoreCase(brokerMode);
+        this.negativeTtlMillis = Math.max(0, negativeTtl.toMillis());
+        this.negativeMaxEntries = Math.max(1, negativeMaxEntries);
+    }
+
+    /**
+     * 방 멤버 여부.
+     * 캐시상 멤버가 아니면 DB에서 한 번 더 확인 (최근에 확인한 비멤버 / 없는 방은 다시 읽지 않음).
+     */
+    public boolean isMember(int roomId, int userId) {
+        if (!cacheEnabled) {
+            misses.increment();
+            return usersRepo.isMember(roomId, userId);
+        }
+        int[] cur = rooms.get(roomId);
+        if (cur != null) {
+            hits.increment();
+            if (Arrays.binarySearch(cur, userId) >= 0) return true;
+        }
+
+        long key = key(roomId, userId);
+        long now = System.currentTimeMillis();
+        Long until = denied.get(key);
+        if (until != null && until > now) {
+            negativeHits.increment();
+            return false;
+        }
+        int[] fresh;
+        if (cur == null) {
+            misses.increment();
+            fresh = load(roomId);
+        } else {
+            fresh = reload(roomId);
+        }
+        boolean member = Arrays.binarySearch(fresh, userId) >= 0;
+        if (member) {
+            denied.remove(key);
+        } else if (negativeTtlMillis > 0) {
+            if (denied.size() >= negativeMaxEntries) sweepDenied(now);
+            denied.put(key, now + negativeTtlMillis);
+        }
+        return member;
+    }
+
+    /** 방의 전체 멤버 (정렬됨, 수정 금지) */
+    public int[] members(int roomId) {
+        int[] cur = rooms.get(roomId);
+        if (cur != null) {
+            hits.increment();
+            return cur;
+        }
+        misses.increment();
+        return load(roomId);
+    }
+
+    /** 나를 제외한 멤버 */
+    public int[] peerIds(int roomId, int me) {
+        int[] all = members(roomId);
+        int idx = Arrays.binarySearch(all, me);
+        if (idx < 0) return all;
+        int[] out = new int[all.length - 1];
+        System.arraycopy(all, 0, out, 0, idx);
+        System.arraycopy(all, idx + 1, out, idx, all.length - idx - 1);
+        return out;
+    }
+
+    /** DB에서 방 멤버를 다시 읽어 교체 */
+    public int[] reload(int roomId) {
+        reloads.increment();
+        return load(roomId);
+    }
+
+    /* ===== 변경 반영 (커밋 이후) ===== */
+
+    public void addMembers(int roomId, Collection<Integer> userIds) {
+        if (userIds == null || userIds.isEmpty()) return;
+        int[] add = userIds.stream().filter(u -> u != null).mapToInt(Integer::intValue).toArray();
+        TxUtils.afterCommit(() -> {
+            generation.incrementAndGet();
+            rooms.computeIfPresent(roomId, (k, cur) -> merge(cur, add));
+            for (int u : add) denied.remove(key(roomId, u));
+        });
+    }
+
+    public void removeMember(int roomId, int userId) {
+        TxUtils.afterCommit(() -> {
+            generation.incrementAndGet();
+            rooms.computeIfPresent(roomId, (k, cur) -> {
+                int idx = Arrays.binarySearch(cur, userId);
+                if (idx < 0) return cur;
+                int[] out = new int[cur.length - 1];
+                System.arraycopy(cur, 0, out, 0, idx);
+                System.arraycopy(cur, idx + 1, out, idx, cur.length - idx - 1);
+                return out;
+            });
+        });
+    }
+
+    public void evictRoom(int roomId) {
+        TxUtils.afterCommit(() -> {
+            generation.incrementAndGet();
+            rooms.remove(roomId);
+        });
+    }
+
+    // ===== 내부 구현 =====
+
+    private int[] load(int roomId) {
+        long gen = generation.get();
+        List<Integer> ids = usersRepo.findUserIdsByRoom(roomId);
+        if (!cacheEnabled) {
+            return ids.stream().mapToInt(Integer::intValue).sorted().distinct().toArray();
+        }
+        if (ids.isEmpty()) {
+            rooms.remove(roomId);
+            return EMPTY;   // 없는 방은 캐시하지 않음
+        }
+        int[] loaded = ids.stream().mapToInt(Integer::intValue).sorted().distinct().toArray();
+        if (generation.get() == gen) {
+            rooms.put(roomId, loaded);
+        }
+        return loaded;
+    }
+
+    private static long key(int roomId, int userId) {
+        return ((long) roomId << 32) | (userId & 0xffffffffL);
+    }
+
+    /** 만료된 비멤버 기록 정리, 그래도 가득 차 있으면 비움 */
+    private void sweepDenied(long now) {
+        denied.values().removeIf(until -> until <= now);
+        if (denied.size() >= negativeMaxEntries) denied.clear();
+    }
+
+    private static int[] merge(int[] cur, int[] add) {
+        int[] out = Arrays.copyOf(cur, cur.length + add.length);
+        System.arraycopy(add, 0, out, cur.length, add.length);
+        return Arrays.stream(out).sorted().distinct().toArray();
+    }
+
+    public Map<String, Object> stats() {
+        long total = 0;
+        for (int[] m : rooms.values()) total += m.length;
+        long h = hits.sum(), ms = misses.sum();
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("cacheEnabled", cacheEnabled);
+        m.put("rooms", rooms.size());
+        m.put("memberships", total);
+        m.put("hits", h);
+        m.put("misses", ms);
+        m.put("reloads", reloads.sum());
+        m.put("negativeEntries", denied.size());
+        m.put("negativeHits", negativeHits.sum());
+        m.put("hitRatio", (h + ms) == 0 ? 0 : (double) h / (h + ms));
+        return m;
+    }
+}
@@ -0,0 +1,390 @@
+package com.pj.springboot.chat.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.pj.springboot.chat.ChatMessage;
+import com.pj.springboot.chat.repository.ChatMessageRepository;
+import com.pj.springboot.chat.repository.ChatMessageRepositoryCustom.Segment;
+import com.pj.springboot.common.TxUtils;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 오래된 채팅 메시지 아카이브.
+ *  - max-age 보다 오래된 메시지를 방별로 segment-size 건씩 묶어 gzip 압축 → chat_message_segment 로 이동
+ *  - 방의 가장 오래된 메시지부터 순서대로 옮기므로 "아카이브된 id < 남은 chat_message id" 가 항상 성립
+ *  - 세그먼트 저장 + 원본 삭제는 한 트랜잭션 (중간에 끊겨도 중복/유실 없음)
+ *  - 히스토리 조회가 chat_message 에서 모자라면 readBefore / readAfter 로 세그먼트에서 이어서 읽음
+ *  - 여러 노드가 떠 있어도 이동 작업은 MySQL named lock 을 잡은 한 곳에서만 (못 잡은 노드는 그 회차를 건너뜀)
+ *  - relay 모드(멀티 노드)에서는 방별 아카이브 경계를 캐시하지 않고 조회마다 DB에서 읽음:
+ *    다른 노드가 옮긴 구간을 모르면 과거 히스토리가 안 보이거나 sync 가 옮겨진 행을 건너뛰므로
+ */
+@Service
+public class ChatMessageArchiveService {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatMessageArchiveService.class);
+
+    private static final byte FORMAT_V1 = 1;
+    private static final byte FORMAT_V2 = 2;   // + 원문 크기(큰 본문)
+    private static final String ARCHIVE_LOCK = "chat-message-archive";
+
+    private final ChatMessageRepository msgRepo;
+    private final TransactionTemplate tx;
+    private final boolean enabled;
+    private final Duration maxAge;
+    private final int segmentSize;
+    private final int maxRoomsPerRun;
+    private final Duration pause;
+    private final int cacheSegments;
+    private final boolean boundaryCacheEnabled;
+
+    // 실제 이동은 전용 스레드 (공용 스케줄러 스레드를 오래 잡지 않도록)
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "chat-archiver");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean runScheduled = new AtomicBoolean();
+    private volatile boolean running = true;
+    // 방 ID 커서: 한 번에 max-rooms-per-run 개씩 돌고, 끝까지 가면 처음부터 (오래된 방만 계속 고르지 않도록)
+    private volatile int roomCursor;
+
+    // roomId → 아카이브된 마지막 message_id (0 = 없음), 처음 조회 시 DB에서 로딩 (relay 모드에서는 쓰지 않음)
+    private final ConcurrentHashMap<Integer, Integer> archivedUpTo = new ConcurrentHashMap<>();
+
+    // segment_id → 압축 해제된 메시지 (access-order LRU, cache 자체를 락으로 사용)
+    private final LinkedHashMap<Long, List<ChatMessage>> decoded;
+
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder segmentsWritten = new LongAdder();
+    private final LongAdder messagesArchived = new LongAdder();
+    private final LongAdder rawBytes = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder lockBusy = new LongAdder();
+    private final LongAdder archiveReads = new LongAdder();
+    private final LongAdder segmentLoads = new LongAdder();
+    private final LongAdder segmentCacheHits = new LongAdder();
+    private volatile long lastRunMillis;
+
+    public ChatMessageArchiveService(ChatMessageRepository msgRepo,
+                                     PlatformTransactionManager txManager,
+                                     @Value("${app.chat.archive.enabled:true}") boolean enabled,
+                                     @Value("${app.chat.archive.max-age:P90D}") Duration maxAge,
+                                     @Value("${app.chat.archive.segment-size:500}") int segmentSize,
+                                     @Value("${app.chat.archive.max-rooms-per-run:200}") int maxRoomsPerRun,
+                                     @Value("${app.chat.archive.pause:PT0.05S}") Duration pause,
+                                     @Value("${app.chat.archive.cache-segments:64}") int cacheSegments,
+                                     @Value("${app.chat.broker.mode:simple}") String brokerMode) {
+        this.msgRepo = msgRepo;
+        this.tx = new TransactionTemplate(txManager);
+        this.enabled = enabled;
+        this.maxAge = maxAge;
+        this.segmentSize = Math.max(1, segmentSize);
+        this.maxRoomsPerRun = Math.max(1, maxRoomsPerRun);
+        this.pause = pause;
+        this.cacheSegments = Math.max(0, cacheSegments);
+        this.boundaryCacheEnabled = !"relay".equalsIgnoreCase(brokerMode);
+        this.decoded = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, List<ChatMessage>> eldest) {
+                return size() > ChatMessageArchiveService.this.cacheSegments;
+            }
+        };
+    }
+
+    /** 주기적으로 아카이브 실행 예약 (이전 실행이 끝나지 않았으면 건너뜀) */
+    @Scheduled(initialDelayString = "${app.chat.archive.initial-delay:PT5M}",
+               fixedDelayString = "${app.chat.archive.interval:PT10M}")
+    public void scheduleRun() {
+        if (!enabled || !runScheduled.compareAndSet(false, true)) return;
+        executor.execute(() -> {
+            try {
+                archiveOnce();
+            } finally {
+                runScheduled.set(false);
+            }
+        });
+    }
+
+    /** 아카이브 1회 (다른 노드가 실행 중이면 건너뜀) */
+    void archiveOnce() {
+        long t0 = System.nanoTime();
+        try {
+            if (!msgRepo.runExclusively(ARCHIVE_LOCK, this::archiveRooms)) {
+                lockBusy.increment();
+            }
+        } catch (RuntimeException e) {
+            failures.increment();
+            log.warn("chat archive run failed: {}", e.getMessage());
+        } finally {
+            runs.increment();
+            lastRunMillis = (System.nanoTime() - t0) / 1_000_000;
+        }
+    }
+
+    /** cutoff 이전 메시지가 세그먼트 하나 이상 쌓인 방들을 방 ID 순으로 이어서 세그먼트로 이동 */
+    private void archiveRooms() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(maxAge);
+        List<Integer> roomIds = msgRepo.findRoomIdsWithMessagesBefore(cutoff, roomCursor, segmentSize, maxRoomsPerRun);
+        roomCursor = (roomIds.size() < maxRoomsPerRun) ? 0 : roomIds.get(roomIds.size() - 1);
+        try {
+            for (Integer roomId : roomIds) {
+                if (!running) break;
+                archiveRoom(roomId, cutoff);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 최신 → 과거 방향으로 beforeId(null 이면 끝) 이전의 아카이브 메시지 최대 size 건.
+     * 아카이브가 없는 방은 DB 조회 없이 바로 빈 목록.
+     */
+    public List<ChatMessage> readBefore(int roomId, Integer beforeId, int size) {
+        int upTo = archivedUpTo(roomId);
+        if (upTo == 0 || size <= 0) return List.of();
+        archiveReads.increment();
+
+        int cursor = (beforeId == null) ? Integer.MAX_VALUE : beforeId;
+        List<ChatMessage> out = new ArrayList<>(size);
+        while (out.size() < size) {
+            List<Segment> segs = msgRepo.findSegmentsBefore(roomId, cursor, 2);
+            if (segs.isEmpty()) break;
+            for (Segment s : segs) {
+                List<ChatMessage> msgs = decode(s);
+                for (int i = msgs.size() - 1; i >= 0 && out.size() < size; i--) {
+                    if (msgs.get(i).getId() < cursor) out.add(msgs.get(i));
+                }
+                cursor = Math.min(cursor, s.firstId());
+                if (out.size() >= size) break;
+            }
+        }
+        return out;
+    }
+
+    /** 과거 → 최신 방향으로 afterId 이후의 아카이브 메시지 최대 size 건 */
+    public List<ChatMessage> readAfter(int roomId, int afterId, int size) {
+        if (afterId >= archivedUpTo(roomId) || size <= 0) return List.of();
+        archiveReads.increment();
+
+        int cursor = afterId;
+        List<ChatMessage> out = new ArrayList<>(size);
+        while (out.size() < size) {
+            List<Segment> segs = msgRepo.findSegmentsAfter(roomId, cursor, 2);
+            if (segs.isEmpty()) break;
+            for (Segment s : segs) {
+                for (ChatMessage m : decode(s)) {
+                    if (m.getId() > cursor && out.size() < size) out.add(m);
+                }
+                cursor = Math.max(cursor, s.lastId());
+                if (out.size() >= size) break;
+            }
+        }
+        return out;
+    }
+
+    /** 방 삭제 시 캐시 정리 (세그먼트 행은 ChatRoomPurgeService 가 삭제) */
+    public void evictRoom(int roomId) {
+        TxUtils.afterCommit(() -> {
+            archivedUpTo.remove(roomId);
+            synchronized (decoded) {
+                decoded.values().removeIf(list -> !list.isEmpty() && list.get(0).getRoomId() == roomId);
+            }
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        running = false;
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ===== 내부 구현 =====
+
+    private void archiveRoom(int roomId, LocalDateTime cutoff) throws InterruptedException {
+        while (running) {
+            List<ChatMessage> batch = new ArrayList<>(segmentSize);
+            for (ChatMessage m : msgRepo.findByRoomIdOrderByIdAsc(roomId, Limit.of(segmentSize))) {
+                if (!m.getTime().isBefore(cutoff)) break;   // 가장 오래된 것부터 연속 구간만
+                batch.add(m);
+            }
+            // 마지막 자투리는 segment-size 가 찰 때까지 chat_message 에 둠 (작은 세그먼트 남발 방지)
+            if (batch.size() < segmentSize) return;
+
+            ChatMessage first = batch.get(0), last = batch.get(batch.size() - 1);
+            byte[] data = encode(batch);
+            Segment seg = new Segment(null, roomId, first.getId(), last.getId(), batch.size(),
+                    first.getTime(), last.getTime(), data);
+
+            // 커밋 전에 먼저 올려 둠 → 이동 직후 조회도 아카이브를 확인 (롤백되면 빈 조회 한 번뿐)
+            if (boundaryCacheEnabled) archivedUpTo.merge(roomId, last.getId(), Math::max);
+            Boolean moved = tx.execute(status -> {
+                int deleted = msgRepo.moveToSegment(seg);
+                if (deleted != seg.count()) {
+                    // 그 사이 방 정리 등으로 원본이 바뀜 → 이번 묶음은 취소
+                    status.setRollbackOnly();
+                    return false;
+                }
+                return true;
+            });
+            if (!Boolean.TRUE.equals(moved)) {
+                conflicts.increment();
+                archivedUpTo.remove(roomId);
+                return;
+            }
+            segmentsWritten.increment();
+            messagesArchived.add(batch.size());
+            compressedBytes.add(data.length);
+
+            if (!pause.isZero()) Thread.sleep(pause.toMillis());
+        }
+    }
+
+    private int archivedUpTo(int roomId) {
+        if (!boundaryCacheEnabled) return msgRepo.findArchivedUpTo(roomId);
+        Integer v = archivedUpTo.get(roomId);
+        if (v != null) return v;
+        int loaded = msgRepo.findArchivedUpTo(roomId);
+        Integer prev = archivedUpTo.putIfAbsent(roomId, loaded);
+        return prev != null ? prev : loaded;
+    }
+
+    private List<ChatMessage> decode(Segment s) {
+        if (cacheSegments > 0) {
+            synchronized (decoded) {
+                List<ChatMessage> hit = decoded.get(s.id());
+                if (hit != null) {
+                    segmentCacheHits.increment();
+                    return hit;
+                }
+            }
+        }
+        segmentLoads.increment();
+        List<ChatMessage> msgs = decode(s.roomId(), s.data());
+        if (cacheSegments > 0) {
+            synchronized (decoded) {
+                decoded.put(s.id(), msgs);
+            }
+        }
+        return msgs;
+    }
+
+    /**
+     * 세그먼트 형식 (gzip 내부): [버전 1B][건수 4B] + 건마다
+     * [id 4B][보낸 사람 4B][epoch 초 8B][내용 길이 4B][내용 UTF-8][원문 크기 4B, 0 = 인라인 (v2)]
+     * 방 ID 는 세그먼트 행에 있으므로 생략. 큰 본문의 원문은 chat_message_blob 에 그대로 남는다.
+     */
+    private byte[] encode(List<ChatMessage> batch) {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(batch.size() * 64);
+        long raw = 0;
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(buf))) {
+            out.writeByte(FORMAT_V2);
+            out.writeInt(batch.size());
+            for (ChatMessage m : batch) {
+                byte[] content = m.getContent().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(m.getId());
+                out.writeInt(m.getSenderId());
+                out.writeLong(m.getTime().toEpochSecond(ZoneOffset.UTC));
+                out.writeInt(content.length);
+                out.write(content);
+                out.writeInt(m.getFullSize() == null ? 0 : m.getFullSize());
+                raw += 24 + content.length;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        rawBytes.add(raw);
+        return buf.toByteArray();
+    }
+
+    private static List<ChatMessage> decode(int roomId, byte[] data) {
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(data)))) {
+            byte version = in.readByte();
+            if (version != FORMAT_V1 && version != FORMAT_V2) throw new IllegalStateException("unknown chat segment format: " + version);
+            int n = in.readInt();
+            List<ChatMessage> out = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                ChatMessage m = new ChatMessage();
+                m.setId(in.readInt());
+                m.setRoomId(roomId);
+                m.setSenderId(in.readInt());
+                m.setTime(LocalDateTime.ofEpochSecond(in.readLong(), 0, ZoneOffset.UTC));
+                byte[] content = new byte[in.readInt()];
+                in.readFully(content);
+                m.setContent(new String(content, StandardCharsets.UTF_8));
+                if (version >= FORMAT_V2) {
+                    int fullSize = in.readInt();
+                    m.setFullSize(fullSize == 0 ? null : fullSize);
+                }
+                out.add(m);
+            }
+            return List.copyOf(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long raw = rawBytes.sum(), packed = compressedBytes.sum();
+        int cached;
+        synchronized (decoded) {
+            cached = decoded.size();
+        }
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("enabled", enabled);
+        m.put("maxAge", maxAge.toString());
+        m.put("runs", runs.sum());
+        m.put("roomCursor", roomCursor);
+        m.put("lastRunMillis", lastRunMillis);
+        m.put("segmentsWritten", segmentsWritten.sum());
+        m.put("messagesArchived", messagesArchived.sum());
+        m.put("compressionRatio", packed == 0 ? 0 : (double) raw / packed);
+        m.put("conflicts", conflicts.sum());
+        m.put("failures", failures.sum());
+        m.put("lockBusy", lockBusy.sum());
+        m.put("boundaryCacheEnabled", boundaryCacheEnabled);
+        m.put("archiveReads", archiveReads.sum());
+        m.put("segmentLoads", segmentLoads.sum());
+        m.put("segmentCacheHits", segmentCacheHits.sum());
+        m.put("cachedSegments", cached);
+        return m;
+    }
+}
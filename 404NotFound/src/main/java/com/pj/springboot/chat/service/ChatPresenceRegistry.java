@@ -0,0 +1,279 @@
+package com.pj.springboot.chat.service;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.simp.user.SimpSession;
+import org.springframework.messaging.simp.user.SimpSubscription;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+/**
+ * 채팅 접속 상태(presence) 레지스트리. DB 기록 없이 메모리에서만 관리.
+ *  - STOMP inbound 프레임(CONNECT/SUBSCRIBE/SEND/HEARTBEAT/DISCONNECT)으로 세션 상태 갱신
+ *  - ONLINE: 최근 away-after 안에 SEND 등 활동 / AWAY: 연결은 살아 있으나 활동 없음 / OFFLINE
+ *  - 하트비트가 stale-after 동안 끊긴 세션은 주기적으로 정리 → 메모리는 살아 있는 세션 수에 비례
+ *  - 세션별로 보고 있는 방(/topic/rooms/{id} 구독)도 추적
+ *  - CONNECT 때 세션 사용자(Principal = employeeId)를 붙여 SimpUserRegistry 에도 등록
+ *  - relay 모드(멀티 노드)에서는 이 노드에 없는 사용자를 SimpUserRegistry(노드 간 broadcast)로 확인
+ *    → 다른 노드 사용자는 ONLINE/OFFLINE 만 구분 (AWAY 판정 불가), broadcast 주기만큼 늦을 수 있음
+ */
+@Service
+public class ChatPresenceRegistry {
+
+    private static final String ROOM_TOPIC_PREFIX = "/topic/rooms/";
+
+    private final long awayAfterMillis;
+    private final long staleAfterMillis;
+    private final boolean relay;
+    private final ObjectProvider<SimpUserRegistry> userRegistry;
+
+    // sessionId → 세션 상태
+    private final ConcurrentHashMap<String, SessionState> sessions = new ConcurrentHashMap<>();
+    // userId → sessionId 집합
+    private final ConcurrentHashMap<Integer, Set<String>> userSessions = new ConcurrentHashMap<>();
+
+    private final LongAdder connects = new LongAdder();
+    private final LongAdder disconnects = new LongAdder();
+    private final LongAdder heartbeats = new LongAdder();
+    private final LongAdder staleRemoved = new LongAdder();
+
+    public ChatPresenceRegistry(@Value("${app.chat.presence.away-after:PT5M}") Duration awayAfter,
+                                @Value("${app.chat.presence.stale-after:PT40S}") Duration staleAfter,
+                                @Value("${app.chat.broker.mode:simple}") String brokerMode,
+                                ObjectProvider<SimpUserRegistry> userRegistry) {
+        this.awayAfterMillis = awayAfter.toMillis();
+        this.staleAfterMillis = staleAfter.toMillis();
+        this.relay = "relay".equalsIgnoreCase(brokerMode);
+        this.userRegistry = userRegistry;
+    }
+
+    public enum Status { ONLINE, AWAY, OFFLINE }
+
+    /** inbound 채널 인터셉터: 프레임 종류별로 세션 상태 갱신 (호출 스레드에서 바로 처리) */
+    public ChannelInterceptor inboundInterceptor() {
+        return new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                SimpMessageHeaderAccessor h = SimpMessageHeaderAccessor.wrap(message);
+                String sessionId = h.getSessionId();
+                SimpMessageType type = h.getMessageType();
+                if (sessionId == null || type == null) return message;
+                switch (type) {
+                    case CONNECT -> {
+                        Integer userId = userIdOf(h.getSessionAttributes());
+                        connect(sessionId, userId);
+                        bindUser(message, userId);
+                    }
+                    case SUBSCRIBE -> subscribe(sessionId, h.getSubscriptionId(), h.getDestination());
+                    case UNSUBSCRIBE -> unsubscribe(sessionId, h.getSubscriptionId());
+                    case MESSAGE -> active(sessionId);
+                    case DISCONNECT -> disconnect(sessionId);
+                    default -> touch(sessionId);   // HEARTBEAT 등
+                }
+                return message;
+            }
+        };
+    }
+
+    /** 소켓이 비정상 종료된 경우 (DISCONNECT 프레임 없이 끊김) */
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        disconnect(event.getSessionId());
+    }
+
+    public Status status(int userId) {
+        Set<String> ids = userSessions.get(userId);
+        if (ids == null || ids.isEmpty()) return remoteUser(userId) != null ? Status.ONLINE : Status.OFFLINE;
+        long now = System.currentTimeMillis();
+        Status best = Status.OFFLINE;
+        for (String sid : ids) {
+            SessionState s = sessions.get(sid);
+            if (s == null || now - s.lastSeen > staleAfterMillis) continue;
+            if (now - s.lastActive <= awayAfterMillis) return Status.ONLINE;
+            best = Status.AWAY;
+        }
+        return best;
+    }
+
+    /** 여러 사용자 상태를 한 번에 (방 목록용) */
+    public Map<Integer, Status> statuses(Collection<Integer> userIds) {
+        Map<Integer, Status> out = new LinkedHashMap<>();
+        for (Integer uid : userIds) {
+            if (uid != null) out.put(uid, status(uid));
+        }
+        return out;
+    }
+
+    /** 사용자가 지금 해당 방 토픽을 구독 중인지 (방을 열어 둔 상태) */
+    public boolean isViewing(int userId, int roomId) {
+        Set<String> ids = userSessions.get(userId);
+        if (ids != null) {
+            for (String sid : ids) {
+                SessionState s = sessions.get(sid);
+                if (s != null && s.rooms.containsValue(roomId)) return true;
+            }
+        }
+        SimpUser remote = remoteUser(userId);
+        if (remote == null) return false;
+        String topic = ROOM_TOPIC_PREFIX + roomId;
+        for (SimpSession session : remote.getSessions()) {
+            for (SimpSubscription sub : session.getSubscriptions()) {
+                if (topic.equals(sub.getDestination())) return true;
+            }
+        }
+        return false;
+    }
+
+    /** 하트비트가 끊긴 세션 정리 */
+    @Scheduled(fixedDelayString = "${app.chat.presence.sweep-interval:PT30S}")
+    public void sweep() {
+        long cutoff = System.currentTimeMillis() - staleAfterMillis;
+        for (Map.Entry<String, SessionState> e : sessions.entrySet()) {
+            if (e.getValue().lastSeen < cutoff) {
+                disconnect(e.getKey());
+                staleRemoved.increment();
+            }
+        }
+    }
+
+    // ===== 내부 구현 =====
+
+    /** STOMP 세션 사용자 지정 → user registry(relay 모드면 노드 간 공유)에 employeeId 로 등록 */
+    private static void bindUser(Message<?> message, Integer userId) {
+        if (userId == null) return;
+        StompHeaderAccessor acc = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (acc != null && acc.isMutable() && acc.getUser() == null) {
+            acc.setUser(new EmployeePrincipal(String.valueOf(userId)));
+        }
+    }
+
+    /** relay 모드에서 다른 노드에 접속한 사용자 (없으면 null) */
+    private SimpUser remoteUser(int userId) {
+        if (!relay) return null;
+        SimpUserRegistry registry = userRegistry.getIfAvailable();
+        return registry == null ? null : registry.getUser(String.valueOf(userId));
+    }
+
+    private void connect(String sessionId, Integer userId) {
+        if (userId == null) return;
+        sessions.put(sessionId, new SessionState(userId));
+        userSessions.computeIfAbsent(userId, k -> ConcurrentHashMap.newKeySet()).add(sessionId);
+        connects.increment();
+    }
+
+    private void disconnect(String sessionId) {
+        SessionState s = sessions.remove(sessionId);
+        if (s == null) return;
+        userSessions.computeIfPresent(s.userId, (k, set) -> {
+            set.remove(sessionId);
+            return set.isEmpty() ? null : set;
+        });
+        disconnects.increment();
+    }
+
+    private void subscribe(String sessionId, String subscriptionId, String destination) {
+        SessionState s = sessions.get(sessionId);
+        if (s == null || subscriptionId == null) return;
+        s.touch();
+        if (destination != null && destination.startsWith(ROOM_TOPIC_PREFIX)) {
+            try {
+                s.rooms.put(subscriptionId, Integer.parseInt(destination.substring(ROOM_TOPIC_PREFIX.length())));
+            } catch (NumberFormatException ignore) {
+                // /topic/rooms/{id} 형식이 아니면 무시
+            }
+        }
+    }
+
+    private void unsubscribe(String sessionId, String subscriptionId) {
+        SessionState s = sessions.get(sessionId);
+        if (s == null) return;
+        s.touch();
+        if (subscriptionId != null) s.rooms.remove(subscriptionId);
+    }
+
+    private void active(String sessionId) {
+        SessionState s = sessions.get(sessionId);
+        if (s != null) {
+            s.touch();
+            s.lastActive = s.lastSeen;
+        }
+    }
+
+    private void touch(String sessionId) {
+        SessionState s = sessions.get(sessionId);
+        if (s != null) {
+            s.touch();
+            heartbeats.increment();
+        }
+    }
+
+    private static Integer userIdOf(Map<String, Object> attrs) {
+        if (attrs == null) return null;
+        Object v = attrs.get("employeeId");
+        if (v instanceof Integer i) return i;
+        if (v instanceof String s) {
+            try {
+                return Integer.parseInt(s);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private record EmployeePrincipal(String name) implements Principal {
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+
+    private static final class SessionState {
+        final int userId;
+        // subscriptionId → roomId (방 토픽 구독만)
+        final ConcurrentHashMap<String, Integer> rooms = new ConcurrentHashMap<>(4);
+        volatile long lastSeen;
+        volatile long lastActive;
+
+        SessionState(int userId) {
+            this.userId = userId;
+            this.lastSeen = System.currentTimeMillis();
+            this.lastActive = this.lastSeen;
+        }
+
+        void touch() {
+            lastSeen = System.currentTimeMillis();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("sessions", sessions.size());
+        m.put("users", userSessions.size());
+        m.put("connects", connects.sum());
+        m.put("disconnects", disconnects.sum());
+        m.put("heartbeats", heartbeats.sum());
+        m.put("staleRemoved", staleRemoved.sum());
+        return m;
+    }
+}
@@ -0,0 +1,230 @@
+package com.pj.springboot.chat.service;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * STOMP 전송(/app/rooms/{roomId}/send) 속도 제한.
+ *  - 보낸 사람(employeeId)별 + 방별 토큰 버킷, 둘 다 통과해야 전송 (방 버킷에서 막히면 보낸 사람 토큰은 돌려줌)
+ *  - 버킷 상태(토큰, 마지막 충전 시각)를 long 하나에 담아 CAS 로 갱신 (락 없음)
+ *  - 초과 프레임은 버리고 /topic/users/{uid}/alerts 로 RATE_LIMITED 안내 (소켓은 유지)
+ */
+@Service
+public class ChatRateLimiter {
+
+    private static final Pattern SEND_DEST = Pattern.compile("^/app/rooms/(\\d+)/send$");
+
+    // 상태 = [상위 24비트: 밀리토큰][하위 40비트: 기준 시각 이후 ms]
+    private static final int TIME_BITS = 40;
+    private static final long TIME_MASK = (1L << TIME_BITS) - 1;
+    private static final long MAX_MILLI_TOKENS = (1L << (64 - TIME_BITS - 1)) - 1;
+    private static final int MAX_TRACKED_SENDERS = 1000;
+
+    private final ChatFanoutService fanout;
+    private final boolean enabled;
+    private final BucketSpec senderSpec;
+    private final BucketSpec roomSpec;
+    private final long noticeIntervalMillis;
+    private final long epoch = System.currentTimeMillis();
+
+    private final ConcurrentHashMap<Integer, AtomicLong> senderBuckets = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, AtomicLong> roomBuckets = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Long> lastNotice = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, LongAdder> throttledBySender = new ConcurrentHashMap<>();
+
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder throttledSender = new LongAdder();
+    private final LongAdder throttledRoom = new LongAdder();
+
+    public ChatRateLimiter(@Lazy ChatFanoutService fanout,
+                           @Value("${app.chat.rate-limit.enabled:true}") boolean enabled,
+                           @Value("${app.chat.rate-limit.sender.capacity:20}") int senderCapacity,
+                           @Value("${app.chat.rate-limit.sender.refill-per-second:5}") double senderRefill,
+                           @Value("${app.chat.rate-limit.room.capacity:100}") int roomCapacity,
+                           @Value("${app.chat.rate-limit.room.refill-per-second:50}") double roomRefill,
+                           @Value("${app.chat.rate-limit.notice-interval-ms:1000}") long noticeIntervalMillis) {
+        this.fanout = fanout;
+        this.enabled = enabled;
+        this.senderSpec = new BucketSpec(senderCapacity, senderRefill);
+        this.roomSpec = new BucketSpec(roomCapacity, roomRefill);
+        this.noticeIntervalMillis = noticeIntervalMillis;
+    }
+
+    /** inbound 채널 인터셉터: 제한 초과 SEND 프레임은 컨트롤러에 도달하기 전에 버림 */
+    public ChannelInterceptor inboundInterceptor() {
+        return new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                if (!enabled) return message;
+                SimpMessageHeaderAccessor h = SimpMessageHeaderAccessor.wrap(message);
+                if (h.getMessageType() != SimpMessageType.MESSAGE || h.getDestination() == null) return message;
+                Matcher m = SEND_DEST.matcher(h.getDestination());
+                if (!m.matches()) return message;
+
+                Integer me = userIdOf(h.getSessionAttributes());
+                if (me == null) return message;   // 인증 오류는 컨트롤러가 처리
+                Integer roomId = parseId(m.group(1));
+                if (roomId == null) return message;   // int 범위 밖 방 번호 → 컨트롤러에서 오류 처리
+                return tryAcquire(me, roomId) ? message : null;
+            }
+        };
+    }
+
+    /** 보낸 사람 / 방 버킷에서 토큰 1개씩 */
+    public boolean tryAcquire(int senderId, int roomId) {
+        long now = System.currentTimeMillis() - epoch;
+        if (!take(senderBuckets.computeIfAbsent(senderId, k -> senderSpec.newBucket(now)), senderSpec, now)) {
+            throttledSender.increment();
+            throttled(senderId, roomId, senderSpec);
+            return false;
+        }
+        if (!take(roomBuckets.computeIfAbsent(roomId, k -> roomSpec.newBucket(now)), roomSpec, now)) {
+            // 전송되지 않았으니 보낸 사람 토큰은 환불 (시끄러운 방 때문에 다른 방 전송까지 막히지 않도록)
+            AtomicLong sender = senderBuckets.get(senderId);
+            if (sender != null) refund(sender, senderSpec);
+            throttledRoom.increment();
+            throttled(senderId, roomId, roomSpec);
+            return false;
+        }
+        allowed.increment();
+        return true;
+    }
+
+    /** 가득 찬 채로 오래 안 쓰인 버킷 정리 (메모리 상한) */
+    @Scheduled(fixedDelayString = "${app.chat.rate-limit.sweep-interval:PT1M}")
+    public void sweep() {
+        long now = System.currentTimeMillis() - epoch;
+        senderBuckets.values().removeIf(b -> senderSpec.isFull(b.get(), now));
+        roomBuckets.values().removeIf(b -> roomSpec.isFull(b.get(), now));
+        long cutoff = System.currentTimeMillis() - noticeIntervalMillis;
+        lastNotice.values().removeIf(t -> t < cutoff);
+    }
+
+    // ===== 내부 구현 =====
+
+    private static boolean take(AtomicLong bucket, BucketSpec spec, long now) {
+        while (true) {
+            long cur = bucket.get();
+            long tokens = spec.refill(cur, now);
+            if (tokens < 1000) return false;
+            long next = ((tokens - 1000) << TIME_BITS) | (now & TIME_MASK);
+            if (bucket.compareAndSet(cur, next)) return true;
+        }
+    }
+
+    private static void refund(AtomicLong bucket, BucketSpec spec) {
+        while (true) {
+            long cur = bucket.get();
+            long tokens = Math.min(spec.capacityMilli, (cur >>> TIME_BITS) + 1000);
+            long next = (tokens << TIME_BITS) | (cur & TIME_MASK);
+            if (bucket.compareAndSet(cur, next)) return;
+        }
+    }
+
+    private void throttled(int senderId, int roomId, BucketSpec spec) {
+        if (throttledBySender.size() < MAX_TRACKED_SENDERS || throttledBySender.containsKey(senderId)) {
+            throttledBySender.computeIfAbsent(senderId, k -> new LongAdder()).increment();
+        }
+        // 안내는 사용자당 notice-interval 에 한 번만
+        long nowWall = System.currentTimeMillis();
+        Long prev = lastNotice.get(senderId);
+        if (prev != null && nowWall - prev < noticeIntervalMillis) return;
+        boolean won = (prev == null) ? lastNotice.putIfAbsent(senderId, nowWall) == null
+                                     : lastNotice.replace(senderId, prev, nowWall);
+        if (won) {
+            fanout.sendToUsers(new int[] { senderId }, "alerts",
+                    new RateLimited("RATE_LIMITED", roomId, spec.millisPerToken()));
+        }
+    }
+
+    /** 목적지의 방 번호 (int 범위를 넘으면 null) */
+    private static Integer parseId(String digits) {
+        try {
+            return Integer.valueOf(digits);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Integer userIdOf(Map<String, Object> attrs) {
+        if (attrs == null) return null;
+        Object v = attrs.get("employeeId");
+        if (v instanceof Integer i) return i;
+        if (v instanceof String s) {
+            try {
+                return Integer.parseInt(s);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /** 클라이언트 안내: retryAfterMs 후 다시 시도 */
+    public record RateLimited(String type, Integer roomId, Long retryAfterMs) {}
+
+    /** 버킷 파라미터 (토큰은 1/1000 단위 정수로 계산) */
+    private static final class BucketSpec {
+        final long capacityMilli;
+        final double refillMilliPerMs;
+
+        BucketSpec(int capacity, double refillPerSecond) {
+            this.capacityMilli = Math.min(MAX_MILLI_TOKENS, Math.max(1, capacity) * 1000L);
+            this.refillMilliPerMs = Math.max(0.001, refillPerSecond);   // (/s × 1000 밀리토큰) / 1000ms
+        }
+
+        AtomicLong newBucket(long now) {
+            return new AtomicLong((capacityMilli << TIME_BITS) | (now & TIME_MASK));
+        }
+
+        /** 경과 시간만큼 충전된 밀리토큰 */
+        long refill(long state, long now) {
+            long tokens = state >>> TIME_BITS;
+            long last = state & TIME_MASK;
+            long elapsed = Math.max(0, (now & TIME_MASK) - last);
+            return Math.min(capacityMilli, tokens + (long) (elapsed * refillMilliPerMs));
+        }
+
+        boolean isFull(long state, long now) {
+            return refill(state, now) >= capacityMilli;
+        }
+
+        long millisPerToken() {
+            return (long) Math.ceil(1000 / refillMilliPerMs);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> top = new LinkedHashMap<>();
+        throttledBySender.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<Integer, LongAdder> e) -> e.getValue().sum()).reversed())
+                .limit(10)
+                .forEach(e -> top.put(String.valueOf(e.getKey()), e.getValue().sum()));
+
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("enabled", enabled);
+        m.put("allowed", allowed.sum());
+        m.put("throttledBySenderLimit", throttledSender.sum());
+        m.put("throttledByRoomLimit", throttledRoom.sum());
+        m.put("senderBuckets", senderBuckets.size());
+        m.put("roomBuckets", roomBuckets.size());
+        m.put("topThrottledSenders", top);
+        return m;
+    }
+}
@@ -0,0 +1,168 @@
+package com.pj.springboot.chat.service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.pj.springboot.chat.repository.ChatMessageRepository;
+import com.pj.springboot.common.TxUtils;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 삭제된 방의 메시지 정리(purge).
+ *  - 요청 스레드에서는 방/멤버 행만 지우고, 메시지는 커밋 후 백그라운드에서 청크 단위 DELETE
+ *  - 청크마다 autocommit → chat_message 잠금을 짧게 유지, 청크 사이에 잠깐 쉬어 부하 분산
+ *  - 메시지 다음으로 아카이브 세그먼트(chat_message_segment), 큰 본문 원문(chat_message_blob)도 같은 방식으로 삭제
+ *  - 기동 시 chat_room 없이 남은 메시지/세그먼트(중단된 정리)를 다시 예약
+ */
+@Service
+public class ChatRoomPurgeService {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatRoomPurgeService.class);
+
+    private final ChatMessageRepository msgRepo;
+    private final int chunkSize;
+    private final Duration pause;
+    private final boolean recoverOnStartup;
+
+    // 전용 단일 스레드: 동시에 한 방씩만 지워 DB 부하 제한
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "chat-room-purge");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // roomId → 지금까지 삭제한 행 수 (진행 중/대기 중)
+    private final ConcurrentHashMap<Integer, AtomicLong> progress = new ConcurrentHashMap<>();
+
+    private final LongAdder scheduled = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder chunks = new LongAdder();
+    private final LongAdder deletedRows = new LongAdder();
+    private final LongAdder deletedSegments = new LongAdder();
+    private final LongAdder deletedBlobs = new LongAdder();
+    private final LongAdder chunkNanos = new LongAdder();
+
+    private volatile boolean running = true;
+
+    public ChatRoomPurgeService(ChatMessageRepository msgRepo,
+                                @Value("${app.chat.purge.chunk-size:1000}") int chunkSize,
+                                @Value("${app.chat.purge.pause:PT0.05S}") Duration pause,
+                                @Value("${app.chat.purge.recover-on-startup:true}") boolean recoverOnStartup) {
+        this.msgRepo = msgRepo;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.pause = pause;
+        this.recoverOnStartup = recoverOnStartup;
+    }
+
+    /** 방 메시지 정리를 예약 (현재 트랜잭션 커밋 이후 시작) */
+    public void purgeRoom(int roomId) {
+        TxUtils.afterCommit(() -> submit(roomId));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void recoverOrphans() {
+        if (!recoverOnStartup) return;
+        try {
+            for (Integer roomId : msgRepo.findOrphanRoomIds(1000)) {
+                submit(roomId);
+            }
+        } catch (RuntimeException e) {
+            log.warn("chat purge recovery skipped: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        // 남은 작업은 다음 기동 시 recoverOrphans 가 이어서 처리
+        running = false;
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ===== 내부 구현 =====
+
+    private void submit(int roomId) {
+        if (progress.putIfAbsent(roomId, new AtomicLong()) != null) return; // 이미 예약됨
+        scheduled.increment();
+        executor.execute(() -> purge(roomId));
+    }
+
+    private void purge(int roomId) {
+        AtomicLong done = progress.get(roomId);
+        try {
+            while (running) {
+                long t0 = System.nanoTime();
+                int n = msgRepo.deleteChunkByRoom(roomId, chunkSize);
+                chunkNanos.add(System.nanoTime() - t0);
+                chunks.increment();
+                deletedRows.add(n);
+                done.addAndGet(n);
+                if (n < chunkSize) break;
+                if (!pause.isZero()) Thread.sleep(pause.toMillis());
+            }
+            // 세그먼트/원문 한 행이 커서 청크를 작게
+            int segChunk = Math.max(1, chunkSize / 10);
+            while (running) {
+                int n = msgRepo.deleteSegmentChunkByRoom(roomId, segChunk);
+                deletedSegments.add(n);
+                if (n < segChunk) break;
+                if (!pause.isZero()) Thread.sleep(pause.toMillis());
+            }
+            while (running) {
+                int n = msgRepo.deleteBlobChunkByRoom(roomId, segChunk);
+                deletedBlobs.add(n);
+                if (n < segChunk) break;
+                if (!pause.isZero()) Thread.sleep(pause.toMillis());
+            }
+            if (running) {
+                completed.increment();
+                log.info("chat room {} purged: {} messages", roomId, done.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            failed.increment();
+            log.error("chat room {} purge failed after {} messages", roomId, done.get(), e);
+        } finally {
+            progress.remove(roomId);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long c = chunks.sum();
+        Map<String, Object> inProgress = new LinkedHashMap<>();
+        progress.forEach((roomId, n) -> inProgress.put(String.valueOf(roomId), n.get()));
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("pendingRooms", progress.size());
+        m.put("inProgress", inProgress);
+        m.put("scheduled", scheduled.sum());
+        m.put("completed", completed.sum());
+        m.put("failed", failed.sum());
+        m.put("chunks", c);
+        m.put("deletedRows", deletedRows.sum());
+        m.put("deletedSegments", deletedSegments.sum());
+        m.put("deletedBlobs", deletedBlobs.sum());
+        m.put("avgChunkMillis", c == 0 ? 0 : chunkNanos.sum() / 1_000_000.0 / c);
+        return m;
+    }
+}
@@ -0,0 +1,492 @@
+package com.pj.springboot.chat.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.pj.springboot.chat.ChatMessage;
+import com.pj.springboot.chat.repository.ChatMessageRepository;
+import com.pj.springboot.chat.repository.ChatUsersRepository;
+
+/**
+ * 채팅 메시지 본문 검색용 메모리 역색인.
+ *  - 단어별 2-gram(bigram) 토큰 → 방별 message_id 정렬 목록 (한글은 형태소 없이도 부분 일치 가능)
+ *  - 전송 커밋 시 증분 추가, 기동 시 / 요청 시 DB에서 재구축
+ *  - 색인은 노드별: relay 모드(멀티 노드)에서는 다른 노드로 보낸 메시지가 이 노드의 add 를 거치지 않으므로
+ *    catch-up-interval 마다 DB에서 새 메시지를 읽어 추가 (그 주기만큼 검색 반영이 늦음).
+ *    AUTO_INCREMENT 순서와 커밋 순서가 어긋나 늦게 커밋된 행을 놓치지 않도록 직전 회차 구간부터 다시 읽는다 (중복은 무시)
+ *  - 검색은 내가 속한 방의 색인만 교집합 → 후보를 DB에서 읽어 원문 포함 여부로 최종 확인
+ *  - message_id 역순 keyset 페이징 (beforeId)
+ *  - 메모리 예산(max-bytes, 추정치): 넘으면 오래된 message_id 부터 잘라내고 그 경계(indexedFromId) 아래는 검색하지 않음
+ *    → 재구축도 배치로 읽으면서 같은 방식으로 잘라내므로 힙 사용량은 예산 안에서 유지
+ *
+ * 검색되지 않는 메시지 (알려진 한계):
+ *  - 큰 본문(ChatContentStore 로 원문 분리)은 chat_message 의 미리보기 부분만 색인/검증
+ *  - 아카이브로 옮겨진 메시지(chat_message_segment)는 chat_message 에 없으므로 검색 결과에서 빠짐
+ *  - indexedFromId 보다 오래된 메시지 (메모리 예산 때문에 잘린 구간)
+ */
+@Service
+public class ChatSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatSearchIndex.class);
+
+    // 후보 검증에서 걸러질 것을 감안한 추가 조회 라운드 수 (다 돌면 커서와 함께 hasMore=true 로 반환)
+    private static final int MAX_ROUNDS = 5;
+    // 메모리 추정치: posting 하나(int + 배열 여유분), gram 하나(HashMap 엔트리 + 2글자 String + IntList)
+    private static final int POSTING_BYTES = 5;
+    private static final int GRAM_BYTES = 128;
+
+    private final ChatMessageRepository msgRepo;
+    private final ChatUsersRepository usersRepo;
+    private final boolean enabled;
+    private final int rebuildBatch;
+    private final long maxBytes;
+    private final boolean catchUpEnabled;
+
+    private final ConcurrentHashMap<Integer, RoomIndex> rooms = new ConcurrentHashMap<>();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private volatile boolean ready;
+    // relay 모드 catch-up: 이번 회차는 prevCatchUpFrom 부터 다시 읽고, 다음 회차는 이번 시작점부터
+    private volatile int catchUpFrom;
+    private volatile int prevCatchUpFrom;
+
+    // 색인 메모리 추정치 / 색인된 가장 큰 id / 이 id 미만은 잘려서 색인에 없음
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicInteger maxIndexedId = new AtomicInteger();
+    private volatile int floorId;
+    private final Object trimLock = new Object();
+
+    private final LongAdder indexed = new LongAdder();
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder candidates = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private final LongAdder searchNanos = new LongAdder();
+    private final LongAdder trims = new LongAdder();
+    private final LongAdder roundLimited = new LongAdder();
+    private final LongAdder caughtUp = new LongAdder();
+
+    public ChatSearchIndex(ChatMessageRepository msgRepo,
+                           ChatUsersRepository usersRepo,
+                           @Value("${app.chat.search.enabled:true}") boolean enabled,
+                           @Value("${app.chat.search.rebuild-batch:5000}") int rebuildBatch,
+                           @Value("${app.chat.search.max-bytes:67108864}") long maxBytes,
+                           @Value("${app.chat.broker.mode:simple}") String brokerMode) {
+        this.msgRepo = msgRepo;
+        this.usersRepo = usersRepo;
+        this.enabled = enabled;
+        this.catchUpEnabled = "relay".equalsIgnoreCase(brokerMode);
+        this.rebuildBatch = Math.max(100, rebuildBatch);
+        this.maxBytes = Math.max(1 << 20, maxBytes);
+    }
+
+    /** 전송된 메시지 색인 (커밋 이후 호출) */
+    public void add(ChatMessage m) {
+        if (!enabled || m == null || m.getId() == null || m.getRoomId() == null) return;
+        if (m.getId() < floorId) return;
+        Set<String> grams = grams(m.getContent());
+        if (grams.isEmpty()) return;
+        bytes.addAndGet(rooms.computeIfAbsent(m.getRoomId(), k -> new RoomIndex()).add(m.getId(), grams));
+        maxIndexedId.accumulateAndGet(m.getId(), Math::max);
+        indexed.increment();
+        if (bytes.get() > maxBytes) trim();
+    }
+
+    public void evictRoom(int roomId) {
+        RoomIndex idx = rooms.remove(roomId);
+        if (idx != null) bytes.addAndGet(-idx.trimBelow(Integer.MAX_VALUE));
+    }
+
+    /** 기동 후 백그라운드에서 전체 재구축 */
+    @EventListener(ApplicationReadyEvent.class)
+    void rebuildOnStartup() {
+        rebuildAsync();
+    }
+
+    /** 백그라운드 재구축 시작 (이미 진행 중이면 false) */
+    public boolean rebuildAsync() {
+        if (!enabled || rebuilding.get()) return false;
+        Thread t = new Thread(this::rebuild, "chat-search-rebuild");
+        t.setDaemon(true);
+        t.start();
+        return true;
+    }
+
+    /**
+     * DB 전체를 message_id 순으로 읽어 색인을 다시 만든다.
+     * 재구축 중 들어온 전송도 같은 색인에 반영되므로(중복 무시) 유실 없음.
+     * @return 이미 재구축 중이면 false
+     */
+    public boolean rebuild() {
+        if (!enabled || !rebuilding.compareAndSet(false, true)) return false;
+        long t0 = System.nanoTime();
+        try {
+            ready = false;
+            synchronized (trimLock) {
+                rooms.clear();
+                bytes.set(0);
+                maxIndexedId.set(0);
+                floorId = 0;
+            }
+            int lastId = 0;
+            long count = 0;
+            while (true) {
+                List<ChatMessage> batch = msgRepo.findByIdGreaterThanOrderByIdAsc(lastId, Limit.of(rebuildBatch));
+                if (batch.isEmpty()) break;
+                for (ChatMessage m : batch) add(m);
+                count += batch.size();
+                lastId = batch.get(batch.size() - 1).getId();
+            }
+            catchUpFrom = lastId;
+            prevCatchUpFrom = lastId;
+            ready = true;
+            log.info("chat search index rebuilt: {} messages in {} ms (indexed from id {}, ~{} KB)",
+                    count, (System.nanoTime() - t0) / 1_000_000, floorId, bytes.get() / 1024);
+        } catch (RuntimeException e) {
+            log.error("chat search index rebuild failed", e);
+        } finally {
+            rebuilding.set(false);
+        }
+        return true;
+    }
+
+    /** relay 모드: 다른 노드로 들어온 메시지를 DB에서 읽어 색인에 추가 */
+    @Scheduled(fixedDelayString = "${app.chat.search.catch-up-interval:PT5S}")
+    public void catchUp() {
+        if (!enabled || !catchUpEnabled || !ready || rebuilding.get()) return;
+        int from = prevCatchUpFrom;
+        int lastId = from;
+        try {
+            while (true) {
+                List<ChatMessage> batch = msgRepo.findByIdGreaterThanOrderByIdAsc(lastId, Limit.of(rebuildBatch));
+                if (batch.isEmpty()) break;
+                for (ChatMessage m : batch) add(m);
+                caughtUp.add(batch.size());
+                lastId = batch.get(batch.size() - 1).getId();
+                if (batch.size() < rebuildBatch) break;
+            }
+            prevCatchUpFrom = Math.max(from, catchUpFrom);
+            catchUpFrom = Math.max(catchUpFrom, lastId);
+        } catch (RuntimeException e) {
+            log.warn("chat search catch-up failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 내가 속한 방들에서 q 의 모든 단어를 포함하는 메시지 (최신 → 과거)
+     * @throws IllegalArgumentException 2글자 이상 단어가 없을 때
+     */
+    public SearchPage search(int me, String q, Integer beforeId, int size) {
+        List<String> terms = terms(q);
+        Set<String> grams = new LinkedHashSet<>();
+        for (String t : terms) grams.addAll(wordGrams(t));
+        if (grams.isEmpty()) {
+            throw new IllegalArgumentException("검색어는 2글자 이상이어야 합니다.");
+        }
+
+        long t0 = System.nanoTime();
+        int limit = Math.max(1, Math.min(size, 100));
+        List<Integer> myRooms = usersRepo.findAllByUser(me).stream().map(cu -> cu.getId().getRoomId()).toList();
+
+        List<ChatMessage> found = new ArrayList<>(limit + 1);
+        int cursor = (beforeId != null) ? beforeId : Integer.MAX_VALUE;
+        boolean exhausted = false;
+        int round = 0;
+        for (; round < MAX_ROUNDS && found.size() <= limit && !exhausted; round++) {
+            int want = limit + 1 - found.size();
+            int[] ids = candidates(myRooms, grams, cursor, want * 2);
+            if (ids.length < want * 2) exhausted = true;
+            if (ids.length == 0) break;
+            candidates.add(ids.length);
+            cursor = ids[ids.length - 1];
+
+            List<ChatMessage> rows = new ArrayList<>(msgRepo.findAllById(Arrays.stream(ids).boxed().toList()));
+            rows.sort(Comparator.comparing(ChatMessage::getId).reversed());
+            for (ChatMessage m : rows) {
+                if (containsAll(m.getContent(), terms)) {
+                    if (found.size() <= limit) found.add(m);
+                } else {
+                    falsePositives.increment();
+                }
+            }
+        }
+
+        boolean hasMore;
+        List<ChatMessage> page;
+        Integer nextBeforeId;
+        if (found.size() > limit) {
+            hasMore = true;
+            page = new ArrayList<>(found.subList(0, limit));
+            nextBeforeId = page.get(page.size() - 1).getId();
+        } else if (!exhausted && round == MAX_ROUNDS) {
+            // 라운드 한도에서 멈춤: 후보가 더 남았으므로 마지막으로 확인한 후보 id 부터 이어서 (이번 페이지는 limit 보다 적을 수 있음)
+            hasMore = true;
+            page = found;
+            nextBeforeId = cursor;
+            roundLimited.increment();
+        } else {
+            hasMore = false;
+            page = found;
+            nextBeforeId = null;
+        }
+
+        searches.increment();
+        searchNanos.add(System.nanoTime() - t0);
+        int from = floorId;
+        return new SearchPage(page, nextBeforeId, hasMore, ready, from > 0 ? from : null);
+    }
+
+    /**
+     * 검색 결과: nextBeforeId 를 그대로 다음 요청 beforeId 로.
+     * indexedFromId != null 이면 그보다 오래된 메시지는 메모리 예산 때문에 색인에 없음.
+     */
+    public record SearchPage(List<ChatMessage> messages, Integer nextBeforeId, boolean hasMore, boolean indexReady,
+                             Integer indexedFromId) {}
+
+    // ===== 내부 구현 =====
+
+    /** 예산 초과: 색인 구간 [floorId, maxIndexedId] 의 오래된 1/4 을 잘라냄 (예산 안으로 들어올 때까지) */
+    private void trim() {
+        synchronized (trimLock) {
+            while (bytes.get() > maxBytes) {
+                int top = maxIndexedId.get();
+                int floor = floorId;
+                if (floor > top) break;
+                int next = floor + Math.max(1, (top - floor) / 4);
+                floorId = next;
+                for (Map.Entry<Integer, RoomIndex> e : rooms.entrySet()) {
+                    bytes.addAndGet(-e.getValue().trimBelow(next));
+                    rooms.computeIfPresent(e.getKey(), (k, idx) -> idx.isEmpty() ? null : idx);
+                }
+                trims.increment();
+            }
+        }
+        log.debug("chat search index trimmed below id {} (~{} KB)", floorId, bytes.get() / 1024);
+    }
+
+    /** 방별 교집합 결과를 id 내림차순으로 합쳐 상위 want 개 */
+    private int[] candidates(List<Integer> roomIds, Set<String> grams, int beforeId, int want) {
+        int[] merged = new int[0];
+        for (Integer roomId : roomIds) {
+            RoomIndex idx = rooms.get(roomId);
+            if (idx == null) continue;
+            int[] hits = idx.match(grams, beforeId, want);
+            if (hits.length == 0) continue;
+            merged = mergeDesc(merged, hits, want);
+        }
+        return merged;
+    }
+
+    private static int[] mergeDesc(int[] a, int[] b, int max) {
+        int[] out = new int[Math.min(max, a.length + b.length)];
+        int i = 0, j = 0, k = 0;
+        while (k < out.length) {
+            if (j >= b.length || (i < a.length && a[i] > b[j])) out[k++] = a[i++];
+            else out[k++] = b[j++];
+        }
+        return out;
+    }
+
+    private static List<String> terms(String q) {
+        if (q == null) return List.of();
+        List<String> out = new ArrayList<>();
+        for (String t : q.toLowerCase(Locale.ROOT).trim().split("\\s+")) {
+            if (!t.isEmpty()) out.add(t);
+        }
+        return out;
+    }
+
+    private static Set<String> grams(String content) {
+        Set<String> out = new LinkedHashSet<>();
+        for (String w : terms(content)) out.addAll(wordGrams(w));
+        return out;
+    }
+
+    private static List<String> wordGrams(String word) {
+        if (word.length() < 2) return List.of();
+        List<String> out = new ArrayList<>(word.length() - 1);
+        for (int i = 0; i + 2 <= word.length(); i++) out.add(word.substring(i, i + 2));
+        return out;
+    }
+
+    private static boolean containsAll(String content, List<String> terms) {
+        if (content == null) return false;
+        String c = content.toLowerCase(Locale.ROOT);
+        for (String t : terms) {
+            if (!c.contains(t)) return false;
+        }
+        return true;
+    }
+
+    /** 방 하나의 bigram → 정렬된 message_id 목록 */
+    private static final class RoomIndex {
+        private final HashMap<String, IntList> postings = new HashMap<>();
+
+        /** @return 늘어난 메모리 추정치 (bytes) */
+        synchronized long add(int messageId, Set<String> grams) {
+            long added = 0;
+            for (String g : grams) {
+                IntList l = postings.get(g);
+                if (l == null) {
+                    l = new IntList();
+                    postings.put(g, l);
+                    added += GRAM_BYTES;
+                }
+                if (l.insert(messageId)) added += POSTING_BYTES;
+            }
+            return added;
+        }
+
+        /** id 가 floor 미만인 posting 제거 (빈 gram 도 제거) @return 줄어든 메모리 추정치 (bytes) */
+        synchronized long trimBelow(int floor) {
+            long freed = 0;
+            var it = postings.values().iterator();
+            while (it.hasNext()) {
+                IntList l = it.next();
+                int n = l.dropBelow(floor);
+                freed += (long) n * POSTING_BYTES;
+                if (l.size == 0) {
+                    it.remove();
+                    freed += GRAM_BYTES;
+                }
+            }
+            return freed;
+        }
+
+        synchronized boolean isEmpty() {
+            return postings.isEmpty();
+        }
+
+        /** 모든 gram 을 가진 id 중 beforeId 미만을 내림차순으로 최대 max 개 */
+        synchronized int[] match(Set<String> grams, int beforeId, int max) {
+            IntList[] lists = new IntList[grams.size()];
+            int n = 0;
+            for (String g : grams) {
+                IntList l = postings.get(g);
+                if (l == null) return new int[0];
+                lists[n++] = l;
+            }
+            Arrays.sort(lists, Comparator.comparingInt(l -> l.size));
+            IntList rarest = lists[0];
+
+            int[] out = new int[Math.min(max, rarest.size)];
+            int k = 0;
+            for (int i = rarest.lowerIndex(beforeId); i >= 0 && k < out.length; i--) {
+                int id = rarest.values[i];
+                boolean all = true;
+                for (int j = 1; j < lists.length && all; j++) all = lists[j].contains(id);
+                if (all) out[k++] = id;
+            }
+            return Arrays.copyOf(out, k);
+        }
+
+        synchronized int postingCount() {
+            int c = 0;
+            for (IntList l : postings.values()) c += l.size;
+            return c;
+        }
+
+        synchronized int gramCount() {
+            return postings.size();
+        }
+    }
+
+    /** 오름차순 int 목록 (대부분 뒤에 추가되므로 append 가 기본 경로) */
+    private static final class IntList {
+        int[] values = new int[4];
+        int size;
+
+        /** @return 추가했으면 true (이미 있으면 false) */
+        boolean insert(int v) {
+            if (size > 0 && values[size - 1] >= v) {
+                int pos = Arrays.binarySearch(values, 0, size, v);
+                if (pos >= 0) return false;   // 중복 색인 무시
+                pos = -pos - 1;
+                grow();
+                System.arraycopy(values, pos, values, pos + 1, size - pos);
+                values[pos] = v;
+                size++;
+                return true;
+            }
+            grow();
+            values[size++] = v;
+            return true;
+        }
+
+        /** floor 미만 값 제거 (앞부분), 많이 비면 배열도 줄임 @return 제거한 개수 */
+        int dropBelow(int floor) {
+            int n = lowerIndex(floor) + 1;
+            if (n <= 0) return 0;
+            size -= n;
+            if (size < values.length / 4) {
+                values = Arrays.copyOfRange(values, n, n + Math.max(4, size));
+            } else {
+                System.arraycopy(values, n, values, 0, size);
+            }
+            return n;
+        }
+
+        boolean contains(int v) {
+            return Arrays.binarySearch(values, 0, size, v) >= 0;
+        }
+
+        /** v 미만인 마지막 원소의 위치 (없으면 -1) */
+        int lowerIndex(int v) {
+            int pos = Arrays.binarySearch(values, 0, size, v);
+            return (pos >= 0 ? pos : -pos - 1) - 1;
+        }
+
+        private void grow() {
+            if (size == values.length) values = Arrays.copyOf(values, size + (size >> 1) + 1);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long grams = 0, postings = 0;
+        for (RoomIndex r : rooms.values()) {
+            grams += r.gramCount();
+            postings += r.postingCount();
+        }
+        long s = searches.sum();
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("enabled", enabled);
+        m.put("ready", ready);
+        m.put("catchUpEnabled", catchUpEnabled);
+        m.put("caughtUp", caughtUp.sum());
+        m.put("rebuilding", rebuilding.get());
+        m.put("rooms", rooms.size());
+        m.put("grams", grams);
+        m.put("postings", postings);
+        m.put("estimatedBytes", bytes.get());
+        m.put("maxBytes", maxBytes);
+        m.put("indexedFromId", floorId);
+        m.put("trims", trims.sum());
+        m.put("roundLimited", roundLimited.sum());
+        m.put("indexed", indexed.sum());
+        m.put("searches", s);
+        m.put("candidates", candidates.sum());
+        m.put("falsePositives", falsePositives.sum());
+        m.put("avgSearchMillis", s == 0 ? 0 : searchNanos.sum() / 1_000_000.0 / s);
+        return m;
+    }
+}
@@ -1,8 +1,12 @@
 package com.pj.springboot.chat.service;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
-import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -11,6 +15,7 @@ import com.pj.springboot.chat.ChatUserId;
 import com.pj.springboot.chat.repository.ChatMessageRepository;
 import com.pj.springboot.chat.repository.ChatRoomRepository;
 import com.pj.springboot.chat.repository.ChatUsersRepository;
+import com.pj.springboot.common.TxUtils;
 
 import lombok.RequiredArgsConstructor;
 
@@ -21,47 +26,205 @@ public class ChatService
     private final ChatUsersRepository usersRepo;
     private final ChatMessageRepository msgRepo;
     private final ChatRoomRepository roomRepo;
+    private final ChatWriteBehindService writeBehind;
+    private final ChatMembershipIndex membership;
+    private final ChatUnreadTracker unreadTracker;
+    private final ChatHotTailCache hotTail;
+    private final ChatRoomPurgeService purgeService;
+    private final ChatSearchIndex searchIndex;
+    private final DirectRoomService directRooms;
+    private final ChatMessageArchiveService archive;
+    private final ChatContentStore contentStore;
 
     /** 방 멤버만 메시지 전송 가능 */
     @Transactional
     public ChatMessage send(Integer roomId, Integer senderId, String content) {
-        if (!usersRepo.isMember(roomId, senderId)) {
+        if (!membership.isMember(roomId, senderId)) {
             throw new IllegalArgumentException("방 멤버가 아닙니다.");
         }
         ChatMessage m = new ChatMessage();
         m.setRoomId(roomId);
         m.setSenderId(senderId);
         m.setContent(content);
-        return msgRepo.save(m);
+
+        // 큰 본문은 미리보기만 남기고 원문은 따로 저장 (상한 초과는 거절)
+        byte[] packed = contentStore.prepare(m);
+
+        // write-behind 모드면 id/time 즉시 발급 → 저장은 백그라운드 배치 (원문도 메시지 행과 같은 트랜잭션에서)
+        ChatMessage saved;
+        if (writeBehind.isEnabled()) {
+            saved = writeBehind.enqueue(m, packed);
+        } else {
+            saved = msgRepo.save(m);
+            if (packed != null) contentStore.storeLarge(saved, packed);
+        }
+
+        // 커밋 이후: 최근 메시지 캐시 / 검색 색인 추가 + 멤버별 안 읽음 카운터 증가 (COUNT 쿼리 없이 메모리에서)
+        TxUtils.afterCommit(() -> {
+            hotTail.append(saved);
+            searchIndex.add(saved);
+            unreadTracker.onMessage(roomId, senderId, saved.getId());
+        });
+        return saved;
+    }
+
+    /**
+     * 읽음 처리: 읽음 커서를 upTo(없으면 방의 마지막 메시지)까지 옮기고 남은 안 읽음 수 재계산
+     * @return 반영된 읽음 커서(message_id) + 남은 안 읽음 수
+     */
+    public ChatUnreadTracker.ReadState markRead(int roomId, int me, Integer upTo) {
+        if (!membership.isMember(roomId, me)) {
+            throw new IllegalArgumentException("방 멤버가 아닙니다.");
+        }
+        return unreadTracker.markRead(roomId, me, upTo);
     }
 
     /** 최신 → 과거 히스토리 */
     @Transactional(readOnly = true)
     public List<ChatMessage> history(Integer roomId, Integer beforeId, int size) {
-        return msgRepo.pageHistory(roomId, beforeId, PageRequest.of(0, Math.min(size, 200)))
-                      .getContent();
+        return historySlice(roomId, beforeId, null, size).messages();
+    }
+
+    /**
+     * keyset 히스토리 (COUNT 쿼리 없음)
+     * - afterId 가 있으면 과거 → 최신 방향으로 afterId 이후 메시지 (재접속 따라잡기)
+     * - 아니면 최신 → 과거 방향으로 beforeId 이전 메시지
+     * 한 건 더 읽어서 다음 페이지 존재 여부를 판단한다.
+     * chat_message 에서 모자란 부분은 아카이브 세그먼트에서 이어서 읽는다 (아카이브 id < 남은 id).
+     */
+    @Transactional(readOnly = true)
+    public HistorySlice historySlice(Integer roomId, Integer beforeId, Integer afterId, int size) {
+        int limit = Math.max(1, Math.min(size, 200));
+
+        if (afterId != null) {
+            // 미저장 메시지를 DB 조회보다 먼저 확보 → 그 사이 커밋되어 목록에서 빠진 행은 DB 쪽에서 보임 (겹치는 행은 아래에서 제외)
+            List<ChatMessage> uncommitted = writeBehind.pendingFor(roomId);
+            // 아카이브된 구간부터 → 이어서 chat_message
+            List<ChatMessage> rows = new ArrayList<>(archive.readAfter(roomId, afterId, limit + 1));
+            if (rows.size() <= limit) {
+                int from = rows.isEmpty() ? afterId : rows.get(rows.size() - 1).getId();
+                rows.addAll(msgRepo.findByRoomIdAndIdGreaterThanOrderByIdAsc(roomId, from, Limit.of(limit + 1 - rows.size())));
+            }
+            // 아직 DB에 반영되지 않은 메시지도 포함
+            for (ChatMessage p : uncommitted) {
+                if (p.getId() > afterId && (rows.isEmpty() || p.getId() > rows.get(rows.size() - 1).getId())) {
+                    rows.add(p);
+                }
+            }
+            boolean hasMore = rows.size() > limit;
+            List<ChatMessage> page = hasMore ? rows.subList(0, limit) : rows;
+            Integer nextAfterId = page.isEmpty() ? afterId : page.get(page.size() - 1).getId();
+            return new HistorySlice(new ArrayList<>(page), null, nextAfterId, hasMore);
+        }
+
+        List<ChatMessage> rows;
+        if (beforeId == null) {
+            // 첫 페이지: 최근 메시지 캐시 우선
+            rows = hotTail.newest(roomId, limit + 1,
+                    n -> msgRepo.findByRoomIdOrderByIdDesc(roomId, Limit.of(n)),
+                    writeBehind::pendingFor);
+        } else {
+            rows = msgRepo.findByRoomIdAndIdLessThanOrderByIdDesc(roomId, beforeId, Limit.of(limit + 1));
+        }
+        if (rows.size() <= limit) {
+            // chat_message 에서 모자라면 아카이브에서 이어서
+            Integer from = rows.isEmpty() ? beforeId : rows.get(rows.size() - 1).getId();
+            List<ChatMessage> older = archive.readBefore(roomId, from, limit + 1 - rows.size());
+            if (!older.isEmpty()) {
+                rows = new ArrayList<>(rows);
+                rows.addAll(older);
+            }
+        }
+        boolean hasMore = rows.size() > limit;
+        List<ChatMessage> page = hasMore ? rows.subList(0, limit) : rows;
+        Integer nextBeforeId = hasMore ? page.get(page.size() - 1).getId() : null;
+        return new HistorySlice(new ArrayList<>(page), nextBeforeId, null, hasMore);
+    }
+
+    /** keyset 히스토리 응답: 다음 요청에 그대로 넘길 커서 포함 */
+    public record HistorySlice(List<ChatMessage> messages, Integer nextBeforeId, Integer nextAfterId, boolean hasMore) {}
+
+    /**
+     * 재접속 델타 동기화.
+     * - cursors: 클라이언트가 방별로 마지막으로 본 message_id
+     * - 내 방(findAllByUser) 중 커서가 있는 방만 afterId keyset 으로 누락분 조회
+     * - 방당 perRoom, 전체 maxTotal 건으로 제한 → 남은 분량은 nextAfterId 로 다시 요청
+     * - 커서가 없는 내 방은 newRoomIds, 더 이상 멤버가 아닌 방은 removedRoomIds 로 알려줌
+     */
+    @Transactional(readOnly = true)
+    public SyncResult sync(int me, Map<Integer, Integer> cursors, int perRoom, int maxTotal) {
+        int roomLimit = Math.max(1, Math.min(perRoom, 200));
+        int budget = Math.max(1, Math.min(maxTotal, 2000));
+        Map<Integer, Integer> known = (cursors == null) ? Map.of() : cursors;
+
+        Set<Integer> myRoomIds = new HashSet<>();
+        for (var cu : usersRepo.findAllByUser(me)) myRoomIds.add(cu.getId().getRoomId());
+
+        List<SyncRoom> rooms = new ArrayList<>();
+        List<Integer> newRoomIds = new ArrayList<>();
+        boolean complete = true;
+        for (Integer roomId : myRoomIds.stream().sorted().toList()) {
+            Integer afterId = known.get(roomId);
+            if (afterId == null) {
+                newRoomIds.add(roomId);
+                continue;
+            }
+            if (budget <= 0) {
+                // 이번 응답 한도 소진: 커서 그대로 다음 요청에서 이어감
+                rooms.add(new SyncRoom(roomId, List.of(), afterId, true));
+                complete = false;
+                continue;
+            }
+            HistorySlice s = historySlice(roomId, null, afterId, Math.min(roomLimit, budget));
+            if (s.messages().isEmpty()) continue;
+            budget -= s.messages().size();
+            rooms.add(new SyncRoom(roomId, s.messages(), s.nextAfterId(), s.hasMore()));
+            if (s.hasMore()) complete = false;
+        }
+
+        List<Integer> removedRoomIds = known.keySet().stream()
+                .filter(id -> id != null && !myRoomIds.contains(id))
+                .sorted()
+                .toList();
+        return new SyncResult(rooms, newRoomIds, removedRoomIds, complete);
     }
 
+    /** 방 하나의 누락 메시지 (과거 → 최신), hasMore 면 nextAfterId 로 다시 요청 */
+    public record SyncRoom(Integer roomId, List<ChatMessage> messages, Integer nextAfterId, boolean hasMore) {}
+
+    /** complete=false 면 rooms 의 nextAfterId 를 커서로 다시 sync */
+    public record SyncResult(List<SyncRoom> rooms, List<Integer> newRoomIds, List<Integer> removedRoomIds, boolean complete) {}
+
     /**
      * 방 나가기.
      * - chat_users 에서 내 멤버십 제거
-     * - 남은 멤버가 0명이면 메시지/방 삭제
+     * - 남은 멤버가 0명이면 방 삭제, 메시지는 커밋 후 백그라운드에서 청크 삭제
      * @return 방 자체가 삭제되었는지 여부
      */
     @Transactional
     public boolean leaveRoom(int roomId, int me) {
+        // 방 행을 먼저 잠가 DIRECT 방 재입장(DirectRoomService)과 순서를 맞춤 → 남은 멤버 수를 최신 값으로 셈
+        roomRepo.lockById(roomId);
         if (!usersRepo.isMember(roomId, me)) {
             // 이미 나간 경우에도 호출될 수 있으니, 사용자 경험상 200 처리하려면 false만 반환해도 됨
             return false;
         }
 
         usersRepo.deleteById(new ChatUserId(roomId, me));
+        membership.removeMember(roomId, me);
+        unreadTracker.forgetUser(roomId, me);
 
         long left = usersRepo.countMembers(roomId);
         if (left == 0) {
-            // 멤버가 없으면 방 정리
-            msgRepo.deleteByRoomId(roomId);
+            // 멤버가 없으면 방 정리 (메시지/아카이브 세그먼트는 엔티티 로딩 없이 비동기 청크 삭제)
             roomRepo.deleteById(roomId);
+            purgeService.purgeRoom(roomId);
+            membership.evictRoom(roomId);
+            unreadTracker.forgetRoom(roomId);
+            hotTail.evictRoom(roomId);
+            searchIndex.evictRoom(roomId);
+            directRooms.evictRoom(roomId);
+            archive.evictRoom(roomId);
             return true;
         }
         return false;
@@ -0,0 +1,82 @@
+package com.pj.springboot.chat.service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * "입력 중…" 표시 합치기.
+ *  - 키 입력마다 오는 typing 이벤트는 메모리에만 기록 (userId → 만료 시각)
+ *  - interval 마다 변경된 방만 /topic/rooms/{id} 로 한 번 브로드캐스트 ({type:"TYPING", userIds})
+ *  - ttl 동안 새 이벤트가 없으면 목록에서 빠지고, 빈 방은 맵에서 제거
+ */
+@Service
+public class ChatTypingCoalescer {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final long ttlMillis;
+
+    // roomId → (userId → 만료 시각)
+    private final ConcurrentHashMap<Integer, ConcurrentHashMap<Integer, Long>> typing = new ConcurrentHashMap<>();
+    // 마지막 브로드캐스트 이후 목록이 바뀐 방
+    private final Map<Integer, Boolean> dirty = new ConcurrentHashMap<>();
+
+    private final LongAdder events = new LongAdder();
+    private final LongAdder broadcasts = new LongAdder();
+
+    public ChatTypingCoalescer(SimpMessagingTemplate messagingTemplate,
+                               @Value("${app.chat.typing.ttl:PT5S}") Duration ttl) {
+        this.messagingTemplate = messagingTemplate;
+        this.ttlMillis = ttl.toMillis();
+    }
+
+    /** typing 이벤트 기록 (typing=false 면 즉시 해제) */
+    public void typing(int roomId, int userId, boolean isTyping) {
+        events.increment();
+        if (isTyping) {
+            Long prev = typing.computeIfAbsent(roomId, k -> new ConcurrentHashMap<>())
+                              .put(userId, System.currentTimeMillis() + ttlMillis);
+            if (prev == null) dirty.put(roomId, Boolean.TRUE);
+        } else {
+            Map<Integer, Long> users = typing.get(roomId);
+            if (users != null && users.remove(userId) != null) dirty.put(roomId, Boolean.TRUE);
+        }
+    }
+
+    /** 변경된 방마다 현재 입력 중 목록을 한 번씩 전송 */
+    @Scheduled(fixedDelayString = "${app.chat.typing.interval:PT1S}")
+    public void flush() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Integer, ConcurrentHashMap<Integer, Long>> e : typing.entrySet()) {
+            if (e.getValue().values().removeIf(exp -> exp < now)) {
+                dirty.put(e.getKey(), Boolean.TRUE);
+            }
+        }
+        for (Integer roomId : List.copyOf(dirty.keySet())) {
+            dirty.remove(roomId);
+            Map<Integer, Long> users = typing.get(roomId);
+            List<Integer> userIds = (users == null) ? List.of() : users.keySet().stream().sorted().toList();
+            if (userIds.isEmpty()) typing.computeIfPresent(roomId, (k, m) -> m.isEmpty() ? null : m);
+            messagingTemplate.convertAndSend("/topic/rooms/" + roomId, new TypingEvent("TYPING", roomId, userIds));
+            broadcasts.increment();
+        }
+    }
+
+    public record TypingEvent(String type, Integer roomId, List<Integer> userIds) {}
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("rooms", typing.size());
+        m.put("events", events.sum());
+        m.put("broadcasts", broadcasts.sum());
+        return m;
+    }
+}
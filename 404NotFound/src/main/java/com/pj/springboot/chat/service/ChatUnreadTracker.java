@@ -0,0 +1,264 @@
+package com.pj.springboot.chat.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.pj.springboot.chat.ChatMessage;
+import com.pj.springboot.chat.repository.ChatMessageRepository;
+import com.pj.springboot.chat.repository.ChatUsersRepository;
+import com.pj.springboot.chat.repository.ChatUsersRepositoryCustom.ReadStateFlush;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 방별 안 읽음 카운터 / 읽음 커서.
+ *  - 메시지 커밋 시 멤버별 카운터를 메모리에서 증가 (COUNT 쿼리 없음)
+ *  - 주기적으로 chat_users.chat_unread_count / chat_last_read_id 에 일괄 반영
+ *  - 조회 시: DB 값 + 아직 flush 안 된 메모리 변경분
+ *  - relay 모드(멀티 노드)에서는 메모리에 모으지 않고 바로 chat_users 에 반영, 방의 마지막 message_id 도 매번 DB에서:
+ *    노드마다 따로 모은 증가분 / 초기화가 서로 순서 없이 덮어쓰거나, 다른 노드 전송을 몰라 커서가 뒤처지지 않도록
+ *    (증가는 커서가 이미 그 메시지 이상인 멤버를 건너뜀)
+ */
+@Service
+public class ChatUnreadTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatUnreadTracker.class);
+
+    private final ChatUsersRepository usersRepo;
+    private final ChatMessageRepository msgRepo;
+    private final ChatMembershipIndex membership;
+    private final ChatWriteBehindService writeBehind;
+    private final boolean shared;
+
+    // key = (roomId << 32 | userId) → flush 대기 중인 변경분
+    private final ConcurrentHashMap<Long, Pending> pending = new ConcurrentHashMap<>();
+    // roomId → 알려진 마지막 message_id
+    private final ConcurrentHashMap<Integer, Integer> lastMessageIds = new ConcurrentHashMap<>();
+
+    private final LongAdder increments = new LongAdder();
+    private final LongAdder markReads = new LongAdder();
+    private final LongAdder partialReads = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushedRows = new LongAdder();
+    private final LongAdder flushFailures = new LongAdder();
+
+    public ChatUnreadTracker(ChatUsersRepository usersRepo,
+                             ChatMessageRepository msgRepo,
+                             ChatMembershipIndex membership,
+                             ChatWriteBehindService writeBehind,
+                             @Value("${app.chat.broker.mode:simple}") String brokerMode) {
+        this.usersRepo = usersRepo;
+        this.msgRepo = msgRepo;
+        this.membership = membership;
+        this.writeBehind = writeBehind;
+        this.shared = "relay".equalsIgnoreCase(brokerMode);
+    }
+
+    /** 메시지 커밋 후 호출: 보낸 사람 외 멤버 +1, 보낸 사람은 읽음 처리 */
+    public void onMessage(int roomId, int senderId, int messageId) {
+        if (shared) {
+            usersRepo.addUnreadToPeers(roomId, senderId, messageId);
+            increments.increment();
+            advance(roomId, senderId, messageId, 0);
+            return;
+        }
+        lastMessageIds.merge(roomId, messageId, Math::max);
+        for (int uid : membership.members(roomId)) {
+            if (uid == senderId) continue;
+            pending.compute(key(roomId, uid), (k, p) -> {
+                if (p == null) p = new Pending();
+                p.unread++;
+                return p;
+            });
+            increments.increment();
+        }
+        // 보낸 사람은 자기 메시지까지 모두 읽은 것으로
+        advance(roomId, senderId, messageId, 0);
+    }
+
+    /**
+     * 읽음 커서 전진.
+     *  - upTo 는 방의 마지막 메시지로 제한, 기존 커서(DB/메모리)보다 뒤로 가지 않음
+     *  - 마지막 메시지까지 읽었으면 안 읽음 0, 일부만 읽었으면 커서 이후 다른 사람 메시지 수 (COUNT 한 번)
+     * @param upTo null 이면 방의 마지막 메시지까지
+     */
+    public ReadState markRead(int roomId, int userId, Integer upTo) {
+        markReads.increment();
+        // 미저장 메시지를 DB 조회보다 먼저 확보: 그 사이 커밋되어 pending 에서 빠진 행도 DB 쪽에서 보이도록
+        List<ChatMessage> uncommitted = writeBehind.pendingFor(roomId);
+        int last = lastMessageId(roomId);
+        int target = (upTo == null) ? last : Math.max(0, Math.min(upTo, last));
+        Integer persisted = usersRepo.findLastReadId(roomId, userId);
+        Pending cur = pending.get(key(roomId, userId));
+        int cursor = Math.max(target, Math.max(persisted != null ? persisted : 0, cur != null ? cur.lastReadId : 0));
+        if (cursor >= last) {
+            return new ReadState(advance(roomId, userId, cursor, 0), 0);
+        }
+        int unread = countUnread(roomId, userId, cursor, uncommitted);
+        partialReads.increment();
+        return new ReadState(advance(roomId, userId, cursor, unread), unread);
+    }
+
+    /** 읽음 처리 결과: 반영된 커서와 남은 안 읽음 수 */
+    public record ReadState(int lastReadId, int unread) {}
+
+    /** DB에 저장된 값(persisted)에 메모리 변경분을 더한 현재 안 읽음 수 */
+    public int unread(int roomId, int userId, Integer persisted) {
+        int base = persisted != null ? persisted : 0;
+        Pending p = pending.get(key(roomId, userId));
+        if (p == null) return base;
+        return p.reset ? p.unread : base + p.unread;
+    }
+
+    /** DB에 저장된 커서(persisted)와 메모리 커서 중 큰 값 */
+    public int lastReadId(int roomId, int userId, Integer persisted) {
+        int base = persisted != null ? persisted : 0;
+        Pending p = pending.get(key(roomId, userId));
+        return (p == null) ? base : Math.max(base, p.lastReadId);
+    }
+
+    public void forgetUser(int roomId, int userId) {
+        pending.remove(key(roomId, userId));
+    }
+
+    public void forgetRoom(int roomId) {
+        lastMessageIds.remove(roomId);
+        pending.keySet().removeIf(k -> roomOf(k) == roomId);
+    }
+
+    /** 메모리 변경분을 chat_users 에 반영 */
+    @Scheduled(fixedDelayString = "${app.chat.unread.flush-interval:PT5S}")
+    public void flush() {
+        if (pending.isEmpty()) return;
+
+        List<ReadStateFlush> batch = new ArrayList<>();
+        for (Long k : pending.keySet()) {
+            pending.computeIfPresent(k, (kk, p) -> {
+                batch.add(new ReadStateFlush(roomOf(kk), userOf(kk), p.reset, p.unread, p.lastReadId));
+                return null;
+            });
+        }
+        if (batch.isEmpty()) return;
+
+        try {
+            usersRepo.applyReadStates(batch);
+            flushes.increment();
+            flushedRows.add(batch.size());
+        } catch (RuntimeException e) {
+            flushFailures.increment();
+            log.warn("unread flush failed (rows={}), will retry: {}", batch.size(), e.getMessage());
+            batch.forEach(this::restore);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flush();
+    }
+
+    // ===== 내부 구현 =====
+
+    /** 커서를 cursor 까지 옮기고 안 읽음을 unread 로 (절대값) 설정 → 반영된 커서 */
+    private int advance(int roomId, int userId, int cursor, int unread) {
+        if (shared) {
+            usersRepo.applyReadStates(List.of(new ReadStateFlush(roomId, userId, true, unread, cursor)));
+            flushedRows.increment();
+            return cursor;
+        }
+        int[] applied = new int[1];
+        pending.compute(key(roomId, userId), (k, p) -> {
+            if (p == null) p = new Pending();
+            p.reset = true;
+            p.unread = unread;
+            p.lastReadId = Math.max(p.lastReadId, cursor);
+            applied[0] = p.lastReadId;
+            return p;
+        });
+        return applied[0];
+    }
+
+    /**
+     * cursor 이후 다른 사람 메시지 수.
+     * write-behind 미저장분이 있으면 그 첫 id 앞까지는 DB, 그 뒤는 확보해 둔 미저장 목록으로 센다
+     * (저장은 id 순서로 커밋되므로 첫 미저장 id 앞은 모두 DB에 있음, 같은 행을 두 번 세지 않음)
+     */
+    private int countUnread(int roomId, int userId, int cursor, List<ChatMessage> uncommitted) {
+        if (uncommitted.isEmpty()) {
+            return (int) msgRepo.countUnreadAfter(roomId, cursor, userId);
+        }
+        int n = (int) msgRepo.countUnreadBetween(roomId, cursor, uncommitted.get(0).getId(), userId);
+        for (ChatMessage m : uncommitted) {
+            if (m.getId() > cursor && m.getSenderId() != userId) n++;
+        }
+        return n;
+    }
+
+    private int lastMessageId(int roomId) {
+        if (shared) {
+            Integer fromDb = msgRepo.findLastIdByRoom(roomId);
+            return fromDb != null ? fromDb : 0;
+        }
+        Integer cached = lastMessageIds.get(roomId);
+        if (cached != null) return cached;
+        Integer fromDb = msgRepo.findLastIdByRoom(roomId);
+        int v = fromDb != null ? fromDb : 0;
+        lastMessageIds.merge(roomId, v, Math::max);
+        return v;
+    }
+
+    // flush 실패분 되돌리기 (그 사이 새 mark-read 가 있었다면 그게 우선)
+    private void restore(ReadStateFlush c) {
+        pending.compute(key(c.roomId(), c.userId()), (k, p) -> {
+            if (p == null) p = new Pending();
+            if (p.reset) return p;
+            if (c.reset()) {
+                p.reset = true;
+                p.lastReadId = Math.max(p.lastReadId, c.lastReadId());
+            }
+            p.unread += c.unread();
+            return p;
+        });
+    }
+
+    private static long key(int roomId, int userId) {
+        return ((long) roomId << 32) | (userId & 0xffffffffL);
+    }
+
+    private static int roomOf(long key) {
+        return (int) (key >>> 32);
+    }
+
+    private static int userOf(long key) {
+        return (int) key;
+    }
+
+    /** flush 대기 변경분 (ConcurrentHashMap.compute 안에서만 수정) */
+    private static final class Pending {
+        volatile int unread;      // reset=false: 증가분, reset=true: 절대값
+        volatile boolean reset;
+        volatile int lastReadId;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("shared", shared);
+        m.put("pending", pending.size());
+        m.put("increments", increments.sum());
+        m.put("markReads", markReads.sum());
+        m.put("partialReads", partialReads.sum());
+        m.put("flushes", flushes.sum());
+        m.put("flushedRows", flushedRows.sum());
+        m.put("flushFailures", flushFailures.sum());
+        return m;
+    }
+}
@@ -0,0 +1,315 @@
+package com.pj.springboot.chat.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.pj.springboot.chat.ChatMessage;
+import com.pj.springboot.chat.repository.ChatMessageRepository;
+import com.pj.springboot.chat.repository.ChatMessageRepositoryCustom.Blob;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 채팅 메시지 write-behind 저장소.
+ *  - message_id / message_time 을 프로세스 안에서 발급 → 즉시 브로드캐스트 가능
+ *  - 제한된 큐(backpressure)에 쌓고 전용 스레드가 multi-row INSERT 로 묶어서 저장(group commit)
+ *  - id 발급과 동시에 미저장 목록(pending)에 넣고 커밋(또는 폐기) 후에야 뺀다
+ *    → flusher 가 큐에서 꺼내 INSERT 하는 동안에도 히스토리 / 안 읽음 계산에서 보임 (id 를 건너뛰는 구간 없음)
+ *  - 큰 본문 원문(blob)도 메시지와 함께 큐에 실어 같은 트랜잭션에서 저장 → 저장 못 한 메시지의 원문만 남는 일이 없음
+ *    (flush 전까지 원문 조회는 큐에 있는 blob 으로 응답)
+ *  - 종료 시 큐에 남은 메시지를 모두 flush
+ *  - 한 건씩 재시도해도 저장 못 한 메시지는 이미 방송되었으므로
+ *    방 토픽에 MESSAGE_DROPPED, 보낸 사람에게 SEND_FAILED 를 보내 화면에서 지우게 하고 최근 메시지 캐시에서도 뺀다
+ * ※ id 를 기동 시점의 최대 사용 id(메시지 / 아카이브 세그먼트 / 원문 blob) 다음부터 발급하므로 단일 인스턴스 전제
+ *   → relay 모드(멀티 노드)와 함께 켜면 노드끼리 같은 id 를 내주므로 기동을 거부한다
+ */
+@Service
+public class ChatWriteBehindService {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatWriteBehindService.class);
+
+    private final ChatMessageRepository msgRepo;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ChatHotTailCache hotTail;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final Duration offerTimeout;
+    private final BlockingQueue<ChatMessage> queue;
+    private final TransactionTemplate tx;
+
+    // 아직 커밋되지 않은 메시지 (큐 + flusher 가 INSERT 중인 것), key = roomId << 32 | messageId → 방별 id 순
+    private final ConcurrentSkipListMap<Long, ChatMessage> pending = new ConcurrentSkipListMap<>();
+    // id 발급 + pending 등록 + 큐 삽입을 한 번에 (큐에 넣는 쪽은 enqueue 뿐이므로 잠금 안에서는 자리가 보장됨)
+    private final Object enqueueLock = new Object();
+
+    // 아직 저장되지 않은 큰 본문 원문 (messageId → blob), 메시지 행과 같은 트랜잭션에서 저장 후 제거
+    private final ConcurrentHashMap<Integer, Blob> pendingBlobs = new ConcurrentHashMap<>();
+
+    private final AtomicInteger idSeq = new AtomicInteger();
+    private volatile boolean accepting;
+    private volatile boolean running;
+    private Thread flusher;
+
+    // ---- metrics ----
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder flushed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final AtomicLong flushNanos = new AtomicLong();
+    private final AtomicInteger maxBatch = new AtomicInteger();
+
+    public ChatWriteBehindService(ChatMessageRepository msgRepo,
+                                  SimpMessagingTemplate messagingTemplate,
+                                  ChatHotTailCache hotTail,
+                                  PlatformTransactionManager txManager,
+                                  @Value("${app.chat.write-behind.enabled:false}") boolean enabled,
+                                  @Value("${app.chat.write-behind.queue-capacity:10000}") int queueCapacity,
+                                  @Value("${app.chat.write-behind.batch-size:200}") int batchSize,
+                                  @Value("${app.chat.write-behind.flush-interval:PT0.05S}") Duration flushInterval,
+                                  @Value("${app.chat.write-behind.offer-timeout:PT0.5S}") Duration offerTimeout,
+                                  @Value("${app.chat.broker.mode:simple}") String brokerMode) {
+        if (enabled && "relay".equalsIgnoreCase(brokerMode)) {
+            throw new IllegalStateException(
+                    "app.chat.write-behind.enabled=true 는 app.chat.broker.mode=relay 와 함께 쓸 수 없습니다 (노드별 id 발급 충돌).");
+        }
+        this.msgRepo = msgRepo;
+        this.messagingTemplate = messagingTemplate;
+        this.hotTail = hotTail;
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+        this.flushInterval = flushInterval;
+        this.offerTimeout = offerTimeout;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.tx = new TransactionTemplate(txManager);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) return;
+        idSeq.set(msgRepo.findMaxAllocatedId());
+        running = true;
+        accepting = true;
+        flusher = new Thread(this::runFlusher, "chat-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+        log.info("chat write-behind started: seed id={}, batch={}, capacity={}",
+                idSeq.get(), batchSize, queue.remainingCapacity());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * id/time 을 발급하고 저장 큐에 넣는다.
+     * 큐가 가득 차면 offer-timeout 동안 자리가 나기를 기다린(backpressure) 뒤 실패 처리.
+     * 자리를 잡은 뒤에만 id 를 발급하므로 거절된 메시지가 pending 에 잠깐이라도 보이는 일은 없다.
+     * @param packed 큰 본문의 압축 원문 (없으면 null) — 메시지 행과 같은 트랜잭션에서 저장
+     */
+    public ChatMessage enqueue(ChatMessage m, byte[] packed) {
+        long deadline = System.nanoTime() + offerTimeout.toNanos();
+        while (true) {
+            if (!accepting) {
+                throw new IllegalStateException("메시지 저장소가 종료 중입니다.");
+            }
+            synchronized (enqueueLock) {
+                if (queue.remainingCapacity() > 0) {
+                    m.setId(idSeq.incrementAndGet());
+                    m.setTime(LocalDateTime.now());
+                    if (packed != null) {
+                        pendingBlobs.put(m.getId(), new Blob(m.getId(), m.getRoomId(), m.getFullSize(), packed));
+                    }
+                    pending.put(key(m), m);
+                    queue.add(m);
+                    break;
+                }
+            }
+            long left = deadline - System.nanoTime();
+            if (left <= 0) {
+                rejected.increment();
+                throw new IllegalStateException("채팅 서버가 혼잡합니다. 잠시 후 다시 시도하세요.");
+            }
+            LockSupport.parkNanos(Math.min(left, TimeUnit.MILLISECONDS.toNanos(1)));
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                rejected.increment();
+                throw new IllegalStateException("메시지 저장이 중단되었습니다.");
+            }
+        }
+        enqueued.increment();
+        return m;
+    }
+
+    /** 아직 DB에 커밋되지 않은 특정 방의 메시지 — 큐 + flusher 가 저장 중인 것 (id 오름차순) */
+    public List<ChatMessage> pendingFor(int roomId) {
+        return new ArrayList<>(pending.subMap(key(roomId, 0), true, key(roomId, Integer.MAX_VALUE), true).values());
+    }
+
+    /** 아직 DB에 반영되지 않은 큰 본문 원문 (없으면 null) */
+    public Blob pendingBlob(int messageId) {
+        return pendingBlobs.get(messageId);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (!enabled) return;
+        accepting = false;
+        running = false;
+        if (flusher != null) {
+            flusher.interrupt();
+            try {
+                flusher.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // 스레드가 못 끝낸 잔여분은 호출 스레드에서 마저 저장
+        drainAll();
+        log.info("chat write-behind stopped: flushed={}, failed={}", flushed.sum(), failed.sum());
+    }
+
+    // ===== 내부 구현 =====
+
+    private void runFlusher() {
+        List<ChatMessage> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                ChatMessage first = queue.poll(flushInterval.toNanos(), TimeUnit.NANOSECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                // 종료 신호: 루프 탈출 후 drainAll()이 잔여분 처리
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                log.error("chat write-behind loop error", e);
+            } finally {
+                batch.clear();
+            }
+        }
+        Thread.interrupted();
+        drainAll();
+    }
+
+    private synchronized void drainAll() {
+        List<ChatMessage> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private void write(List<ChatMessage> batch) {
+        long t0 = System.nanoTime();
+        try {
+            insert(batch);
+            flushed.add(batch.size());
+        } catch (RuntimeException e) {
+            // 배치 실패 시 한 건씩 재시도해 문제 행만 격리
+            log.warn("chat write-behind batch insert failed (size={}), retrying row by row: {}",
+                    batch.size(), e.getMessage());
+            for (ChatMessage m : batch) {
+                try {
+                    insert(List.of(m));
+                    flushed.increment();
+                } catch (RuntimeException rowError) {
+                    failed.increment();
+                    log.error("chat message dropped: id={}, roomId={}, senderId={}",
+                            m.getId(), m.getRoomId(), m.getSenderId(), rowError);
+                    onDropped(m);
+                }
+            }
+        }
+        batches.increment();
+        flushNanos.addAndGet(System.nanoTime() - t0);
+        maxBatch.accumulateAndGet(batch.size(), Math::max);
+    }
+
+    /** 메시지 행 + 딸린 원문을 한 트랜잭션으로 저장 (원문만 커밋되는 일 없음), 커밋 후 대기 원문 제거 */
+    private void insert(List<ChatMessage> rows) {
+        tx.executeWithoutResult(status -> {
+            msgRepo.insertBatch(rows);
+            for (ChatMessage m : rows) {
+                Blob blob = pendingBlobs.get(m.getId());
+                if (blob != null) msgRepo.insertBlob(blob);
+            }
+        });
+        for (ChatMessage m : rows) {
+            pendingBlobs.remove(m.getId());
+            pending.remove(key(m));
+        }
+    }
+
+    private static long key(ChatMessage m) {
+        return key(m.getRoomId(), m.getId());
+    }
+
+    private static long key(int roomId, int messageId) {
+        return ((long) roomId << 32) | (messageId & 0xffffffffL);
+    }
+
+    /** 저장 실패 메시지 회수: 원문을 버리고 캐시에서 빼고 방/보낸 사람에게 알림 (알림 실패는 로그만) */
+    private void onDropped(ChatMessage m) {
+        pendingBlobs.remove(m.getId());
+        pending.remove(key(m));
+        hotTail.remove(m.getRoomId(), m.getId());
+        try {
+            messagingTemplate.convertAndSend("/topic/rooms/" + m.getRoomId(),
+                    new MessageDropped("MESSAGE_DROPPED", m.getRoomId(), m.getId()));
+            messagingTemplate.convertAndSend("/topic/users/" + m.getSenderId() + "/alerts",
+                    new SendFailed("SEND_FAILED", m.getRoomId(), m.getId(), "메시지를 저장하지 못했습니다. 다시 보내 주세요."));
+        } catch (RuntimeException e) {
+            log.warn("chat drop notice failed: id={}: {}", m.getId(), e.getMessage());
+        }
+    }
+
+    /** 방 토픽: 이미 받은 messageId 를 화면에서 제거 */
+    public record MessageDropped(String type, Integer roomId, Integer messageId) {}
+
+    public record SendFailed(String type, Integer roomId, Integer messageId, String message) {}
+
+    public Map<String, Object> stats() {
+        long b = batches.sum();
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("enabled", enabled);
+        m.put("queueDepth", queue.size());
+        m.put("queueRemaining", queue.remainingCapacity());
+        m.put("uncommitted", pending.size());
+        m.put("pendingBlobs", pendingBlobs.size());
+        m.put("enqueued", enqueued.sum());
+        m.put("flushed", flushed.sum());
+        m.put("rejected", rejected.sum());
+        m.put("failed", failed.sum());
+        m.put("batches", b);
+        m.put("avgBatchSize", b == 0 ? 0 : (double) flushed.sum() / b);
+        m.put("maxBatchSize", maxBatch.get());
+        m.put("avgFlushMillis", b == 0 ? 0 : flushNanos.get() / 1_000_000.0 / b);
+        return m;
+    }
+}
@@ -1,71 +1,225 @@
 package com.pj.springboot.chat.service;
 
-import org.springframework.dao.DataIntegrityViolationException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.pj.springboot.chat.ChatRoom;
 import com.pj.springboot.chat.ChatType;
-import com.pj.springboot.chat.ChatUsers;
 import com.pj.springboot.chat.repository.ChatRoomRepository;
 import com.pj.springboot.chat.repository.ChatUsersRepository;
-
-import lombok.RequiredArgsConstructor;
+import com.pj.springboot.common.TxUtils;
 
 /**
  * 1:1(DIRECT) 채팅방 생성/조회 서비스.
  * - 중복 방 방지: chat_key = "작은ID#큰ID"
- * - 첫 생성 시 chat_users에 두 멤버를 함께 등록
+ * - chat_key → 방 LRU 캐시 (조회 쿼리 생략) — relay 모드(멀티 노드)에서는 끔 (다른 노드의 방 삭제를 모름)
+ * - 같은 키 동시 요청은 하나의 생성 작업을 공유 (request coalescing)
+ * - 생성은 INSERT IGNORE + 멤버 INSERT IGNORE 로 멱등 → 예외 재시도 경로 / 멤버 없는 방 없음
+ * - 조회/생성 + 멤버 보강은 한 트랜잭션에서 방 행을 잠근 채 처리 → 마지막 멤버 나가기(방 삭제)와 엇갈려도
+ *   삭제된 방에 멤버만 남는 일이 없음 (잠그기 전에 삭제됐으면 새로 생성)
+ * - 캐시된 방인데 멤버가 빠져 있으면 캐시에서 버리고 DB 경로로 다시 확인, 로딩 중 무효화가 있었으면 캐시하지 않음
  */
 @Service
-@RequiredArgsConstructor
 public class DirectRoomService {
 
     private final ChatRoomRepository roomRepo;
     private final ChatUsersRepository usersRepo;
+    private final ChatMembershipIndex membership;
+    private final TransactionTemplate tx;
+    private final int maxEntries;
+    private final boolean cacheEnabled;
+
+    // access-order LinkedHashMap = LRU, cache 자체를 락으로 사용
+    private final LinkedHashMap<String, ChatRoom> cache;
+    private final Map<Integer, String> keyByRoom = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, CompletableFuture<ChatRoom>> inflight = new ConcurrentHashMap<>();
+    // 로딩 중 무효화가 끼어들면 (삭제됐을 수 있는) 결과를 캐시하지 않기 위한 세대 번호
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder createRaces = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder recreated = new LongAdder();
+
+    public DirectRoomService(ChatRoomRepository roomRepo,
+                             ChatUsersRepository usersRepo,
+                             ChatMembershipIndex membership,
+                             PlatformTransactionManager txManager,
+                             @Value("${app.chat.direct-room-cache.max-entries:10000}") int maxEntries,
+                             @Value("${app.chat.broker.mode:simple}") String brokerMode) {
+        this.roomRepo = roomRepo;
+        this.usersRepo = usersRepo;
+        this.membership = membership;
+        this.tx = new TransactionTemplate(txManager);
+        this.maxEntries = Math.max(1, maxEntries);
+        this.cacheEnabled = !"relay".equalsIgnoreCase(brokerMode);
+        this.cache = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ChatRoom> eldest) {
+                if (size() <= DirectRoomService.this.maxEntries) return false;
+                keyByRoom.remove(eldest.getValue().getId());
+                return true;
+            }
+        };
+    }
 
     /**
      * 두 사용자로 1:1 방을 가져오거나(존재하면) 생성한다.
-     * 동시성 상황에서 UNIQUE(chat_key) 충돌이 나면 재조회하여 반환한다.
+     * 반환 객체는 캐시와 분리된 복사본.
      */
-    @Transactional
     public ChatRoom getOrCreate(int userA, int userB) {
         final int a = Math.min(userA, userB);
         final int b = Math.max(userA, userB);
         final String key = a + "#" + b;
 
-        // 이미 있으면 바로 반환
-        return roomRepo.findByTypeAndChatKey(ChatType.DIRECT, key)
-                .orElseGet(() -> {
-                    try {
-                        // 새 방 생성
-                        ChatRoom r = new ChatRoom();
-                        r.setName("DM " + a + "-" + b);
-                        r.setType(ChatType.DIRECT);
-                        r.setChatKey(key);
-
-                        ChatRoom saved = roomRepo.save(r);
-
-                        // 멤버십 등록 (복합 PK: (roomId, userId))
-                        // ChatUsers 엔티티에 기본 생성자(@NoArgsConstructor)가 반드시 있어야 함
-                        try {
-                            usersRepo.save(ChatUsers.of(saved.getId(), a));
-                        } catch (DataIntegrityViolationException ignore) {
-                            // 동시성으로 이미 들어간 경우 무시
-                        }
-                        try {
-                            usersRepo.save(ChatUsers.of(saved.getId(), b));
-                        } catch (DataIntegrityViolationException ignore) {
-                            // 동시성으로 이미 들어간 경우 무시
-                        }
-
-                        return saved;
-
-                    } catch (DataIntegrityViolationException e) {
-                        // chat_key UNIQUE 충돌 → 누군가 먼저 만들었으니 재조회 후 반환
-                        return roomRepo.findByTypeAndChatKey(ChatType.DIRECT, key)
-                                .orElseThrow(() -> e);
+        ChatRoom cached;
+        synchronized (cache) {
+            cached = cache.get(key);
+        }
+        if (cached != null) {
+            if (membership.isMember(cached.getId(), a) && membership.isMember(cached.getId(), b)) {
+                hits.increment();
+                return copyOf(cached);
+            }
+            // 한쪽이 나갔거나 방이 삭제됐을 수 있음 → 캐시에서 버리고 DB 경로로 (방 확인 + 멤버 복구)
+            staleHits.increment();
+            drop(cached.getId());
+        }
+        misses.increment();
+
+        CompletableFuture<ChatRoom> mine = new CompletableFuture<>();
+        CompletableFuture<ChatRoom> running = inflight.putIfAbsent(key, mine);
+        if (running != null) {
+            coalesced.increment();
+            return copyOf(join(running));
+        }
+        try {
+            long gen = generation.get();
+            ChatRoom room = tx.execute(s -> load(key, a, b));
+            if (cacheEnabled) {
+                synchronized (cache) {
+                    if (generation.get() == gen) {
+                        cache.put(key, room);
+                        keyByRoom.put(room.getId(), key);
                     }
-                });
+                }
+            }
+            mine.complete(room);
+            return copyOf(room);
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inflight.remove(key, mine);
+        }
+    }
+
+    /** 방 삭제 시 캐시 무효화 (커밋 이후) */
+    public void evictRoom(int roomId) {
+        TxUtils.afterCommit(() -> {
+            if (drop(roomId)) invalidations.increment();
+        });
+    }
+
+    // ===== 내부 구현 =====
+
+    /** 캐시에서 방 제거 (+ 진행 중인 로딩 결과도 캐시하지 않게) */
+    private boolean drop(int roomId) {
+        synchronized (cache) {
+            generation.incrementAndGet();
+            String key = keyByRoom.remove(roomId);
+            if (key == null) return false;
+            cache.remove(key);
+            return true;
+        }
+    }
+
+    /**
+     * DB 조회 → 없으면 INSERT IGNORE 로 생성, 멤버는 항상 멱등 보강 (트랜잭션 안에서 호출).
+     * 방 행을 잠근 뒤 멤버를 넣으므로, 그 사이 방이 삭제됐으면 잠금이 실패하고 새 방을 만든다.
+     */
+    private ChatRoom load(String key, int a, int b) {
+        ChatRoom room = roomRepo.findByTypeAndChatKey(ChatType.DIRECT, key).orElse(null);
+        if (room != null && roomRepo.lockById(room.getId()) == null) {
+            recreated.increment();   // 조회 직후 마지막 멤버가 나가 방이 삭제됨
+            room = null;
+        }
+        if (room == null) {
+            Integer newId = roomRepo.insertDirectRoomIfAbsent(key, "DM " + a + "-" + b);
+            if (newId != null) {
+                created.increment();
+            } else {
+                createRaces.increment();   // 다른 노드/요청이 먼저 생성
+            }
+            room = (newId != null ? roomRepo.findById(newId) : roomRepo.findByTypeAndChatKey(ChatType.DIRECT, key))
+                    .orElseThrow(() -> new IllegalStateException("DIRECT 방 생성 실패: " + key));
+            if (roomRepo.lockById(room.getId()) == null) {
+                throw new IllegalStateException("DIRECT 방 생성 직후 삭제됨: " + key);
+            }
+        }
+        // 이전 생성이 중간에 끊겼더라도 두 멤버가 반드시 들어가도록
+        ensureMembers(room.getId(), a, b);
+        return copyOf(room);
+    }
+
+    private void ensureMembers(int roomId, int a, int b) {
+        List<Integer> added = usersRepo.insertMembers(roomId, List.of(a, b));
+        membership.addMembers(roomId, added);
+    }
+
+    private static ChatRoom join(CompletableFuture<ChatRoom> f) {
+        try {
+            return f.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
+    }
+
+    private static ChatRoom copyOf(ChatRoom r) {
+        ChatRoom c = new ChatRoom();
+        c.setId(r.getId());
+        c.setName(r.getName());
+        c.setType(r.getType());
+        c.setChatKey(r.getChatKey());
+        c.setTime(r.getTime());
+        return c;
+    }
+
+    public Map<String, Object> stats() {
+        long h = hits.sum(), ms = misses.sum();
+        int size;
+        synchronized (cache) {
+            size = cache.size();
+        }
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("cacheEnabled", cacheEnabled);
+        m.put("entries", size);
+        m.put("maxEntries", maxEntries);
+        m.put("hits", h);
+        m.put("misses", ms);
+        m.put("hitRatio", (h + ms) == 0 ? 0 : (double) h / (h + ms));
+        m.put("coalesced", coalesced.sum());
+        m.put("created", created.sum());
+        m.put("createRaces", createRaces.sum());
+        m.put("invalidations", invalidations.sum());
+        m.put("staleHits", staleHits.sum());
+        m.put("recreated", recreated.sum());
+        return m;
     }
 }
@@ -1,17 +1,12 @@
 package com.pj.springboot.chat.service;
 
-import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Set;
 
-import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.pj.springboot.chat.ChatRoom;
 import com.pj.springboot.chat.ChatType;
-import com.pj.springboot.chat.ChatUserId;
-import com.pj.springboot.chat.ChatUsers;
 import com.pj.springboot.chat.repository.ChatRoomRepository;
 import com.pj.springboot.chat.repository.ChatUsersRepository;
 
@@ -23,6 +18,7 @@ public class GroupRoomService {
 
     private final ChatRoomRepository roomRepo;
     private final ChatUsersRepository usersRepo;
+    private final ChatMembershipIndex membership;
 
     /** 그룹방 생성: name, 멤버들 등록(중복 제거) */
     @Transactional
@@ -45,26 +41,22 @@ public class GroupRoomService {
         return saved;
     }
 
-    /** 외부 공개: 방에 멤버 추가(초대/참여) */
+    /**
+     * 외부 공개: 방에 멤버 추가(초대/참여)
+     * @return 새로 추가된 멤버 ID (이미 멤버였던 사용자는 제외)
+     */
     @Transactional
-    public void addMembers(Integer roomId, List<Integer> memberIds) {
-        addMembersInternal(roomId, memberIds);
+    public List<Integer> addMembers(Integer roomId, List<Integer> memberIds) {
+        return addMembersInternal(roomId, memberIds);
     }
 
-    /** 실제 멤버 추가 로직 (중복 저장은 무시) */
-    private void addMembersInternal(Integer roomId, List<Integer> memberIds) {
-        if (roomId == null || memberIds == null || memberIds.isEmpty()) return;
+    /** 실제 멤버 추가 로직: 한 번의 multi-row insert (중복은 무시) */
+    private List<Integer> addMembersInternal(Integer roomId, List<Integer> memberIds) {
+        if (roomId == null || memberIds == null || memberIds.isEmpty()) return List.of();
 
-        // 중복 제거 + 입력 순서 유지
-        Set<Integer> uniq = new LinkedHashSet<>(memberIds);
-        for (Integer uid : uniq) {
-            if (uid == null) continue;
-            try {
-                usersRepo.save(new ChatUsers(new ChatUserId(roomId, uid)));
-            } catch (DataIntegrityViolationException ignore) {
-                // 이미 존재/동시성은 무시
-            }
-        }
+        List<Integer> added = usersRepo.insertMembers(roomId, memberIds);
+        membership.addMembers(roomId, added);
+        return added;
     }
 }
 	
\ No newline at end of file
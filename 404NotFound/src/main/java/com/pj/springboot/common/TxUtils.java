@@ -0,0 +1,24 @@
+package com.pj.springboot.common;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// 트랜잭션 관련 공통 유틸
+public final class TxUtils {
+
+    private TxUtils() {}
+
+    /** 현재 트랜잭션이 커밋된 뒤 실행 (트랜잭션 밖이면 즉시 실행) */
+    public static void afterCommit(Runnable r) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    r.run();
+                }
+            });
+        } else {
+            r.run();
+        }
+    }
+}
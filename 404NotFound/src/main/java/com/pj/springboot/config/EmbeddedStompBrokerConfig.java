@@ -0,0 +1,37 @@
+package com.pj.springboot.config;
+
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * 개발/테스트용 내장 STOMP 브로커 (ActiveMQ Artemis, 메모리 전용)
+ *  - embedded-broker 프로필에서만 기동
+ *  - 한 장비에서 백엔드 여러 개를 relay 모드로 붙여 멀티 노드 fan-out 확인용
+ *  - artemis 의존성은 developmentOnly (WAR 배포본에는 포함되지 않음)
+ */
+@Configuration
+@Profile("embedded-broker")
+public class EmbeddedStompBrokerConfig {
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public EmbeddedActiveMQ embeddedStompBroker(
+            @Value("${app.chat.broker.embedded-host:127.0.0.1}") String host,
+            @Value("${app.chat.broker.relay-port:61613}") int port) throws Exception {
+
+        ConfigurationImpl config = new ConfigurationImpl();
+        config.setPersistenceEnabled(false);
+        config.setSecurityEnabled(false);
+        // /topic/** 은 pub-sub(multicast), /queue/** 는 point-to-point(anycast)
+        config.addAcceptorConfiguration("stomp",
+                "tcp://" + host + ":" + port
+                        + "?protocols=STOMP;multicastPrefix=/topic/;anycastPrefix=/queue/");
+
+        EmbeddedActiveMQ broker = new EmbeddedActiveMQ();
+        broker.setConfiguration(config);
+        return broker;
+    }
+}
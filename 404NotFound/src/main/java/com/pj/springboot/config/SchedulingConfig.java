@@ -0,0 +1,13 @@
+package com.pj.springboot.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * @Scheduled 작업 활성화 (채팅 카운터 flush / 알림·입력 중 tick / 정리 작업 등).
+ * 스레드 수는 spring.task.scheduling.pool.size, 근태 자동 등록은 app.attendance.auto-absent.cron 으로 따로 켠다.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,110 @@
+package com.pj.springboot.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+
+/**
+ * STOMP inbound/outbound 채널 실행기 지표.
+ *  - 대기열 길이(제출 - 시작 - 거절), 대기 시간, 처리 시간, 거절(드롭) 건수
+ *  - 느린 클라이언트(send buffer/time 초과)로 끊긴 세션 수
+ */
+@Component
+public class WebSocketChannelMetrics {
+
+    private final ChannelStats inbound = new ChannelStats();
+    private final ChannelStats outbound = new ChannelStats();
+    private final LongAdder slowConsumerCloses = new LongAdder();
+
+    public ChannelStats inbound() {
+        return inbound;
+    }
+
+    public ChannelStats outbound() {
+        return outbound;
+    }
+
+    /** 세션 종료 사유가 SESSION_NOT_RELIABLE(버퍼/시간 한도 초과)면 카운트 */
+    public WebSocketHandlerDecoratorFactory slowConsumerCounter() {
+        return handler -> new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
+                if (CloseStatus.SESSION_NOT_RELIABLE.equalsCode(status)) {
+                    slowConsumerCloses.increment();
+                }
+                super.afterConnectionClosed(session, status);
+            }
+        };
+    }
+
+    /** 채널 하나의 실행 지표 (TaskDecorator + 거절 핸들러로 수집) */
+    public static final class ChannelStats {
+        private final LongAdder submitted = new LongAdder();
+        private final LongAdder started = new LongAdder();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+        private final LongAdder runNanos = new LongAdder();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+
+        public TaskDecorator decorator() {
+            return task -> {
+                submitted.increment();
+                long queuedAt = System.nanoTime();
+                return () -> {
+                    long t0 = System.nanoTime();
+                    long waited = t0 - queuedAt;
+                    started.increment();
+                    waitNanos.add(waited);
+                    maxWaitNanos.accumulateAndGet(waited, Math::max);
+                    try {
+                        task.run();
+                    } finally {
+                        runNanos.add(System.nanoTime() - t0);
+                        completed.increment();
+                    }
+                };
+            };
+        }
+
+        /** 대기열이 가득 차면 메시지를 버리고(예외) 카운트 */
+        public RejectedExecutionHandler rejectionHandler() {
+            return (task, executor) -> {
+                rejected.increment();
+                throw new RejectedExecutionException("WebSocket 채널 대기열이 가득 찼습니다.");
+            };
+        }
+
+        public Map<String, Object> stats() {
+            long s = started.sum(), c = completed.sum();
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("queueDepth", Math.max(0, submitted.sum() - s - rejected.sum()));
+            m.put("inFlight", Math.max(0, s - c));
+            m.put("completed", c);
+            m.put("rejected", rejected.sum());
+            m.put("avgWaitMicros", s == 0 ? 0 : waitNanos.sum() / 1_000.0 / s);
+            m.put("maxWaitMicros", maxWaitNanos.get() / 1_000.0);
+            m.put("avgRunMicros", c == 0 ? 0 : runNanos.sum() / 1_000.0 / c);
+            return m;
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("inbound", inbound.stats());
+        m.put("outbound", outbound.stats());
+        m.put("slowConsumerCloses", slowConsumerCloses.sum());
+        return m;
+    }
+}
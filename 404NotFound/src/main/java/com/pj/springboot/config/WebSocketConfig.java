@@ -1,16 +1,94 @@
 package com.pj.springboot.config;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 import org.springframework.web.socket.server.support.HttpSessionHandshakeInterceptor;
 
+import com.pj.springboot.chat.service.ChatPresenceRegistry;
+import com.pj.springboot.chat.service.ChatRateLimiter;
+
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    // simple: 인스턴스 내부 브로커(단일 노드) / relay: 외부 STOMP 브로커 중계(멀티 노드)
+    private final String brokerMode;
+    private final String relayHost;
+    private final int relayPort;
+    private final String relayLogin;
+    private final String relayPasscode;
+    private final String relayVirtualHost;
+
+    @Value("${app.chat.ws.inbound.virtual-threads:false}")
+    private boolean inboundVirtualThreads;
+    @Value("${app.chat.ws.inbound.core-pool-size:8}")
+    private int inboundCorePoolSize;
+    @Value("${app.chat.ws.inbound.max-pool-size:32}")
+    private int inboundMaxPoolSize;
+    @Value("${app.chat.ws.inbound.queue-capacity:10000}")
+    private int inboundQueueCapacity;
+    @Value("${app.chat.ws.outbound.core-pool-size:8}")
+    private int outboundCorePoolSize;
+    @Value("${app.chat.ws.outbound.max-pool-size:32}")
+    private int outboundMaxPoolSize;
+    @Value("${app.chat.ws.outbound.queue-capacity:10000}")
+    private int outboundQueueCapacity;
+
+    // 느린 클라이언트: 세션별 전송 버퍼/전송 시간 한도 초과 시 세션 종료
+    @Value("${app.chat.ws.send-time-limit-ms:10000}")
+    private int sendTimeLimitMs;
+    @Value("${app.chat.ws.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+    @Value("${app.chat.ws.message-size-limit:65536}")
+    private int messageSizeLimit;
+
+    // STOMP 하트비트 (서버 송신, 클라이언트 수신 기대) — presence 생존 판정에 사용
+    @Value("${app.chat.ws.heartbeat-ms:10000}")
+    private long heartbeatMs;
+
+    private final WebSocketChannelMetrics channelMetrics;
+    private final ChatPresenceRegistry presence;
+    private final ChatRateLimiter rateLimiter;
+    private TaskScheduler brokerTaskScheduler;
+
+    public WebSocketConfig(@Value("${app.chat.broker.mode:simple}") String brokerMode,
+                           @Value("${app.chat.broker.relay-host:localhost}") String relayHost,
+                           @Value("${app.chat.broker.relay-port:61613}") int relayPort,
+                           @Value("${app.chat.broker.relay-login:guest}") String relayLogin,
+                           @Value("${app.chat.broker.relay-passcode:guest}") String relayPasscode,
+                           @Value("${app.chat.broker.relay-virtual-host:}") String relayVirtualHost,
+                           WebSocketChannelMetrics channelMetrics,
+                           ChatPresenceRegistry presence,
+                           ChatRateLimiter rateLimiter) {
+        this.brokerMode = brokerMode;
+        this.relayHost = relayHost;
+        this.relayPort = relayPort;
+        this.relayLogin = relayLogin;
+        this.relayPasscode = relayPasscode;
+        this.relayVirtualHost = relayVirtualHost;
+        this.channelMetrics = channelMetrics;
+        this.presence = presence;
+        this.rateLimiter = rateLimiter;
+    }
+
+    // simple broker 하트비트용 스케줄러 (브로커 설정이 만드는 빈이라 지연 주입)
+    @Autowired
+    public void setBrokerTaskScheduler(@Lazy @Qualifier("messageBrokerTaskScheduler") TaskScheduler scheduler) {
+        this.brokerTaskScheduler = scheduler;
+    }
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry reg) {
         reg.addEndpoint("/ws-chat")
@@ -23,7 +101,71 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     @Override
     public void configureMessageBroker(MessageBrokerRegistry cfg) {
         cfg.setApplicationDestinationPrefixes("/app");
-        cfg.enableSimpleBroker("/topic", "/queue");
+        if ("relay".equalsIgnoreCase(brokerMode)) {
+            // ✅ 외부 브로커로 중계 → 다른 인스턴스에 붙은 사용자에게도 전달
+            var relay = cfg.enableStompBrokerRelay("/topic", "/queue")
+                           .setRelayHost(relayHost)
+                           .setRelayPort(relayPort)
+                           .setClientLogin(relayLogin)
+                           .setClientPasscode(relayPasscode)
+                           .setSystemLogin(relayLogin)
+                           .setSystemPasscode(relayPasscode)
+                           // /user 목적지도 노드 간 공유
+                           .setUserDestinationBroadcast("/topic/unresolved-user-destination")
+                           .setUserRegistryBroadcast("/topic/simp-user-registry");
+            if (!relayVirtualHost.isBlank()) {
+                relay.setVirtualHost(relayVirtualHost);
+            }
+        } else {
+            cfg.enableSimpleBroker("/topic", "/queue")
+               .setHeartbeatValue(new long[] { heartbeatMs, heartbeatMs })
+               .setTaskScheduler(brokerTaskScheduler);
+        }
         cfg.setUserDestinationPrefix("/user");
     }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration reg) {
+        // 접속/구독/하트비트 → presence 갱신, 전송 속도 제한 (실행기로 넘기기 전에 처리)
+        reg.interceptors(presence.inboundInterceptor(), rateLimiter.inboundInterceptor());
+
+        WebSocketChannelMetrics.ChannelStats stats = channelMetrics.inbound();
+        if (inboundVirtualThreads) {
+            // 메시지마다 가상 스레드 → DB 대기 중인 핸들러가 플랫폼 스레드를 점유하지 않음
+            SimpleAsyncTaskExecutor vt = new SimpleAsyncTaskExecutor("ws-inbound-vt-");
+            vt.setVirtualThreads(true);
+            vt.setTaskDecorator(stats.decorator());
+            reg.executor(vt);
+            return;
+        }
+        reg.taskExecutor(pool("ws-inbound-", stats))
+           .corePoolSize(inboundCorePoolSize)
+           .maxPoolSize(inboundMaxPoolSize)
+           .queueCapacity(inboundQueueCapacity);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration reg) {
+        reg.taskExecutor(pool("ws-outbound-", channelMetrics.outbound()))
+           .corePoolSize(outboundCorePoolSize)
+           .maxPoolSize(outboundMaxPoolSize)
+           .queueCapacity(outboundQueueCapacity);
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration reg) {
+        reg.setSendTimeLimit(sendTimeLimitMs)
+           .setSendBufferSizeLimit(sendBufferSizeLimit)
+           .setMessageSizeLimit(messageSizeLimit)
+           .addDecoratorFactory(channelMetrics.slowConsumerCounter());
+    }
+
+    private static ThreadPoolTaskExecutor pool(String prefix, WebSocketChannelMetrics.ChannelStats stats) {
+        ThreadPoolTaskExecutor ex = new ThreadPoolTaskExecutor();
+        ex.setThreadNamePrefix(prefix);
+        ex.setAllowCoreThreadTimeOut(true);
+        ex.setTaskDecorator(stats.decorator());
+        ex.setRejectedExecutionHandler(stats.rejectionHandler());
+        return ex;
+    }
 }
@@ -93,12 +93,25 @@ async function apiCreateGroupRoom({ name, memberIds }) {
 async function apiGetMyRooms(meId) {
   return apiJson(`/api/chat/rooms/my?me=${meId}`);
 }
+/* 방 목록 요약 (서버 안 읽음 수 포함) */
+async function apiGetRoomSummaries(meId) {
+  return apiJson(`/api/chat/rooms/my/summary?me=${meId}`);
+}
+async function apiMarkRead(roomId, meId, upTo) {
+  const qs = new URLSearchParams({ me: String(meId) });
+  if (upTo) qs.set("upTo", String(upTo));
+  return apiJson(`/api/chat/rooms/${roomId}/read?${qs.toString()}`, { method: "POST" });
+}
 async function apiGetMessages(roomId, { beforeId = null, size = 50 } = {}) {
   const qs = new URLSearchParams();
   if (beforeId) qs.set("beforeId", String(beforeId));
   if (size) qs.set("size", String(size));
   return apiJson(`/api/chat/rooms/${roomId}/messages?${qs.toString()}`);
 }
+/* 큰 메시지 원문 (목록/방송에는 미리보기만 옴) */
+async function apiGetFullContent(messageId, meId) {
+  return apiJson(`/api/chat/messages/${messageId}/content?me=${meId}`);
+}
 async function apiLeaveRoom(roomId, meId) {
   return apiJson(`/api/chat/rooms/${roomId}/leave?me=${meId}`, {
     method: "DELETE",
@@ -190,12 +203,17 @@ function Avatar({ variant = "user", size = 40 }) {
     </div>
   );
 }
-function MessageBubble({ who, text, at }) {
+function MessageBubble({ who, text, at, onExpand }) {
   const isMe = who === "me";
   return (
     <div className={`d-flex ${isMe ? "justify-content-end" : "justify-content-start"}`}>
       <div className="dm-bubble shadow-sm border">
         <p className="text-break mb-1">{text}</p>
+        {onExpand && (
+          <button type="button" className="btn btn-link btn-sm p-0 mb-1" onClick={onExpand}>
+            전체 보기
+          </button>
+        )}
         <div className="small text-secondary">{formatTime(at)}</div>
       </div>
     </div>
@@ -385,8 +403,8 @@ export default function ChatMain() {
   useEffect(() => {
     unreadRef.current = unread;
   }, [unread]);
-  function incUnread(roomId) {
-    setUnread((prev) => ({ ...prev, [roomId]: (prev[roomId] || 0) + 1 }));
+  function incUnread(roomId, by = 1) {
+    setUnread((prev) => ({ ...prev, [roomId]: (prev[roomId] || 0) + by }));
   }
   function clearUnread(roomId) {
     setUnread((prev) => {
@@ -396,6 +414,18 @@ export default function ChatMain() {
       return n;
     });
   }
+  /* 서버 읽음 커서 전진 (STOMP, 연결 전이면 REST) → 서버 안 읽음 카운터도 갱신 */
+  function markRoomRead(roomId, upTo) {
+    if (!roomId) return;
+    if (stompRef.current?.connected) {
+      stompRef.current.publish({
+        destination: `/app/rooms/${roomId}/read`,
+        body: JSON.stringify(upTo ? { upTo } : {}),
+      });
+    } else if (meIdRef.current) {
+      apiMarkRead(roomId, meIdRef.current, upTo).catch((e) => console.error("mark read fail:", e));
+    }
+  }
 
   /* 토스트 */
   const [toasts, setToasts] = useState([]);
@@ -455,6 +485,18 @@ export default function ChatMain() {
 
     const uniq = dedupeRoomsById(previews);
     setRooms(uniq);
+
+    // 안 읽음 배지는 서버 카운터 기준 (보고 있는 방 제외)
+    try {
+      const summaries = await apiGetRoomSummaries(currentMe);
+      const next = {};
+      for (const s of summaries) {
+        if (s.unread > 0 && s.roomId !== activeRoomIdRef.current) next[s.roomId] = s.unread;
+      }
+      setUnread(next);
+    } catch (e) {
+      console.error("unread load fail:", e);
+    }
     if (uniq.length && !uniq.some((p) => p.roomId === activeRoomIdRef.current)) {
       setActiveRoomId(uniq[0].roomId);
     }
@@ -473,6 +515,16 @@ export default function ChatMain() {
 
     roomSubRef.current = stompRef.current.subscribe(`/topic/rooms/${roomId}`, (frame) => {
       const msg = JSON.parse(frame.body);
+      // 입력 중 표시 이벤트 {type:"TYPING", roomId, userIds} 는 메시지가 아님
+      if (msg.type === "TYPING") return;
+      // 서버가 저장하지 못한 메시지 {type:"MESSAGE_DROPPED", roomId, messageId} → 화면에서 제거
+      if (msg.type === "MESSAGE_DROPPED") {
+        if (roomId === activeRoomIdRef.current) {
+          msgIdsRef.current.delete(msg.messageId);
+          setMessages((prev) => prev.filter((m) => m.id !== msg.messageId));
+        }
+        return;
+      }
 
       setRooms((prevRooms) =>
         prevRooms.map((r) =>
@@ -486,6 +538,7 @@ export default function ChatMain() {
           setMessages((prev) => [...prev, msg]);
         }
         clearUnread(roomId);
+        if (msg.senderId !== meIdRef.current) markRoomRead(roomId, msg.id);
         const sc = msgRef.current;
         if (sc) sc.scrollTop = sc.scrollHeight + 999;
       }
@@ -498,9 +551,9 @@ export default function ChatMain() {
     userSubRef.current?.unsubscribe();
 
     userSubRef.current = stompRef.current.subscribe(`/topic/users/${uid}/alerts`, async (frame) => {
-      const alert = JSON.parse(frame.body); // {type, roomId, fromUserId, preview, time}
+      const alert = JSON.parse(frame.body); // {type, roomId, fromUserId, preview, time, count}
 
-      if (alert.type === "NEW_MESSAGE") {
+      if (alert.type === "NEW_MESSAGE" || alert.type === "DIGEST") {
         setRooms((prev) =>
           prev.map((r) =>
             r.roomId === alert.roomId ? { ...r, lastText: alert.preview ?? "", lastTime: alert.time } : r
@@ -508,8 +561,9 @@ export default function ChatMain() {
         );
 
         if (activeRoomIdRef.current !== alert.roomId && alert.fromUserId !== uid) {
-          incUnread(alert.roomId);
-          pushToast("새 메시지", alert.preview ?? "");
+          const count = alert.count ?? 1;
+          incUnread(alert.roomId, count);
+          pushToast(count > 1 ? `새 메시지 ${count}개` : "새 메시지", alert.preview ?? "");
         }
 
         try {
@@ -537,6 +591,19 @@ export default function ChatMain() {
         });
         incUnread(alert.roomId);
         pushToast("그룹 초대", alert.preview || `방 #${alert.roomId}에 초대되었습니다.`);
+      } else if (alert.type === "READ") {
+        // 다른 탭/기기 포함 읽음 처리 결과: 서버가 계산한 남은 안 읽음 수로 맞춤
+        if (alert.unread > 0 && activeRoomIdRef.current !== alert.roomId) {
+          setUnread((prev) => ({ ...prev, [alert.roomId]: alert.unread }));
+        } else {
+          clearUnread(alert.roomId);
+        }
+      } else if (alert.type === "SEND_FAILED") {
+        pushToast("저장 실패", alert.message || "메시지를 저장하지 못했습니다.");
+      } else if (alert.type === "SEND_REJECTED") {
+        pushToast("전송 실패", alert.message || "메시지를 보낼 수 없습니다.");
+      } else if (alert.type === "RATE_LIMITED") {
+        pushToast("전송 제한", "메시지를 너무 빠르게 보내고 있습니다. 잠시 후 다시 시도하세요.");
       } else if (alert.type === "ROOM_DELETED") {
         setRooms((prev) => prev.filter((r) => r.roomId !== alert.roomId));
         if (activeRoomIdRef.current === alert.roomId) {
@@ -566,7 +633,10 @@ export default function ChatMain() {
     stompRef.current = client;
 
     const onFocus = () => {
-      if (activeRoomIdRef.current) clearUnread(activeRoomIdRef.current);
+      if (activeRoomIdRef.current) {
+        clearUnread(activeRoomIdRef.current);
+        markRoomRead(activeRoomIdRef.current);
+      }
     };
     window.addEventListener("focus", onFocus);
 
@@ -601,6 +671,7 @@ export default function ChatMain() {
         const asc = latestToOld.slice().reverse();
         for (const m of asc) msgIdsRef.current.add(m.id);
         setMessages(asc);
+        if (asc.length) markRoomRead(activeRoomId, asc[asc.length - 1].id);
         setTimeout(() => {
           const sc = msgRef.current;
           if (sc) sc.scrollTop = sc.scrollHeight + 999;
@@ -630,6 +701,18 @@ export default function ChatMain() {
     }
   }
 
+  /* 큰 메시지 원문 펼치기 */
+  async function expandMessage(messageId) {
+    try {
+      const full = await apiGetFullContent(messageId, meId);
+      setMessages((prev) =>
+        prev.map((m) => (m.id === messageId ? { ...m, content: full.content, fullSize: null } : m))
+      );
+    } catch (e) {
+      console.error("full content fail:", e);
+    }
+  }
+
   /* 전송 */
   function onSend() {
     const text = input.trim();
@@ -850,6 +933,7 @@ export default function ChatMain() {
                       who={m.senderId === meId ? "me" : "them"}
                       text={m.content}
                       at={m.time}
+                      onExpand={m.fullSize ? () => expandMessage(m.id) : undefined}
                     />
                   </div>
                 ))}